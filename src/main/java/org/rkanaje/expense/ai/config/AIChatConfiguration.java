@@ -1,13 +1,18 @@
 package org.rkanaje.expense.ai.config;
 
+import org.apache.hc.core5.util.TimeValue;
 import org.eclipse.jetty.client.HttpClient;
+import org.rkanaje.expense.ai.service.Bulkhead;
+import org.rkanaje.expense.ai.service.BulkheadInterceptor;
+import org.rkanaje.expense.ai.service.ModelRouter;
 import org.rkanaje.expense.ai.service.RestClientInterceptor;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.ollama.OllamaChatModel;
 import org.springframework.ai.ollama.api.OllamaApi;
-import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
 import org.springframework.boot.http.client.ClientHttpRequestFactorySettings;
 import org.springframework.context.annotation.Bean;
@@ -23,7 +28,11 @@ import java.time.Duration;
 public class AIChatConfiguration {
 
     @Bean
-    public OllamaApi ollamaApi(OllamaConfig ollamaConfig) {
+    public OllamaApi ollamaApi(OllamaConfig ollamaConfig,
+                               @Value("${ollama.log.max-body-bytes:2048}") int maxLoggedBytes,
+                               @Qualifier("ollamaBulkhead") Bulkhead ollamaBulkhead,
+                               @Value("${ollama.http.max-connections:8}") int maxConnections,
+                               @Value("${ollama.http.keep-alive-ms:300000}") long keepAliveMillis) {
         RestClient.Builder restClientBuilder = RestClient.builder();
         ClientHttpRequestFactorySettings settings = ClientHttpRequestFactorySettings
                 .defaults()
@@ -31,13 +40,24 @@ public class AIChatConfiguration {
                 .withReadTimeout(Duration.ofSeconds(300));
 
         HttpClient httpClient = new HttpClient();
-        httpClient.setIdleTimeout(60000);
+        httpClient.setIdleTimeout(keepAliveMillis);
         httpClient.setConnectTimeout(60000);
+        httpClient.setMaxConnectionsPerDestination(maxConnections);
 
+        TimeValue keepAlive = TimeValue.ofMilliseconds(keepAliveMillis);
         JettyClientHttpConnector connector = new JettyClientHttpConnector(httpClient);
-        ClientHttpRequestFactory requestFactory = ClientHttpRequestFactoryBuilder.httpComponents().build(settings);
+        ClientHttpRequestFactory requestFactory = ClientHttpRequestFactoryBuilder.httpComponents()
+                .withConnectionManagerCustomizer(pool -> pool
+                        // Ollama is a single host, so the per-route limit is the real one; the default of 5 is below its slots
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections))
+                .withHttpClientCustomizer(client -> client
+                        .setKeepAliveStrategy((response, context) -> keepAlive)
+                        .evictIdleConnections(keepAlive))
+                .build(settings);
         restClientBuilder.requestFactory(requestFactory)
-                .requestInterceptor(new RestClientInterceptor());
+                .requestInterceptor(new BulkheadInterceptor(ollamaBulkhead))
+                .requestInterceptor(new RestClientInterceptor(maxLoggedBytes));
         WebClient.Builder webClientBuilder = WebClient.builder().clientConnector(connector);
         return OllamaApi.builder()
                 .webClientBuilder(webClientBuilder)
@@ -48,15 +68,11 @@ public class AIChatConfiguration {
     }
 
     @Bean
-    public ChatModel chatModel(OllamaApi ollamaApi, OllamaConfig ollamaConfig) {
+    public ChatModel chatModel(OllamaApi ollamaApi, ModelRouter modelRouter) {
+        // Requests override these with the options of the profile they are routed to
         return OllamaChatModel.builder()
                 .ollamaApi(ollamaApi)
-                .defaultOptions(
-                        OllamaOptions.builder()
-                                .model(ollamaConfig.getChat().getModel())
-                                .numCtx(ollamaConfig.getChat().getOptions().getNumCtx())
-                                .temperature(ollamaConfig.getChat().getOptions().getTemperature())
-                                .build())
+                .defaultOptions(modelRouter.defaultProfile().options())
                 .build();
     }
 
@@ -0,0 +1,25 @@
+package org.rkanaje.expense.ai.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.rkanaje.expense.ai.service.Bulkhead;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BulkheadConfig {
+
+    @Bean
+    public Bulkhead ollamaBulkhead(@Value("${expense.bulkhead.ollama.max-concurrent:4}") int maxConcurrent,
+                                   @Value("${expense.bulkhead.ollama.max-wait-ms:2000}") long maxWaitMillis,
+                                   MeterRegistry meterRegistry) {
+        return new Bulkhead("ollama", maxConcurrent, maxWaitMillis, meterRegistry);
+    }
+
+    @Bean
+    public Bulkhead sheetsBulkhead(@Value("${expense.bulkhead.sheets.max-concurrent:16}") int maxConcurrent,
+                                   @Value("${expense.bulkhead.sheets.max-wait-ms:5000}") long maxWaitMillis,
+                                   MeterRegistry meterRegistry) {
+        return new Bulkhead("sheets", maxConcurrent, maxWaitMillis, meterRegistry);
+    }
+}
@@ -0,0 +1,23 @@
+package org.rkanaje.expense.ai.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "expense.store.type", havingValue = "jdbc")
+public class ExpenseStoreConfig {
+
+    @Bean
+    public DataSourceInitializer expenseSchemaInitializer(DataSource dataSource) {
+        DataSourceInitializer initializer = new DataSourceInitializer();
+        initializer.setDataSource(dataSource);
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("db/expense-schema.sql")));
+        return initializer;
+    }
+}
@@ -2,13 +2,14 @@ package org.rkanaje.expense.ai.config;
 
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.SheetsScopes;
 import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.service.PooledHttpTransport;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,7 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.util.Collections;
 
 @Slf4j
@@ -34,25 +35,40 @@ public class GoogleSheetsConfig {
     @Value("${google.sheets.spreadsheet.id}")
     private String spreadsheetId;
 
+    @Value("${google.sheets.http.read-timeout-ms:30000}")
+    private int readTimeoutMillis;
+
+    /**
+     * Pooled HTTP/2 transport shared by the Sheets client and the OAuth token refresh.
+     */
     @Bean
-    public NetHttpTransport httpTransport() throws GeneralSecurityException, IOException {
-        return GoogleNetHttpTransport.newTrustedTransport();
+    public HttpTransport httpTransport(@Value("${google.sheets.http.max-connections:20}") int maxConnections,
+                                       @Value("${google.sheets.http.keep-alive-ms:120000}") long keepAliveMillis,
+                                       @Value("${google.sheets.http.connect-timeout-ms:10000}") long connectTimeoutMillis,
+                                       @Value("${google.sheets.http.http2:true}") boolean http2) {
+        return new PooledHttpTransport(maxConnections, Duration.ofMillis(keepAliveMillis),
+                Duration.ofMillis(connectTimeoutMillis), http2);
     }
 
     @Bean
-    public Credential credential() throws IOException, GeneralSecurityException {
+    public Credential credential(HttpTransport httpTransport) throws IOException {
 
         // read the credentials.json file
         final String credentialsJson = new String(Files.readAllBytes(Paths.get(credentialsJsonFile)));
         try (InputStream credentialsStream = new ByteArrayInputStream(credentialsJson.getBytes())) {
-            return GoogleCredential.fromStream(credentialsStream)
+            return GoogleCredential.fromStream(credentialsStream, httpTransport, JSON_FACTORY)
                     .createScoped(Collections.singleton(SheetsScopes.SPREADSHEETS));
         }
     }
 
     @Bean
-    public Sheets sheetsService(NetHttpTransport httpTransport, Credential credential) {
-        return new Sheets.Builder(httpTransport, JSON_FACTORY, credential)
+    public Sheets sheetsService(HttpTransport httpTransport, Credential credential) {
+        // Authorizes each request and sets its read timeout, which the transport applies per exchange
+        HttpRequestInitializer initializer = request -> {
+            credential.initialize(request);
+            request.setReadTimeout(readTimeoutMillis);
+        };
+        return new Sheets.Builder(httpTransport, JSON_FACTORY, initializer)
                 .setApplicationName(APPLICATION_NAME)
                 .build();
     }
@@ -5,6 +5,9 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Getter
 @Setter
 @Configuration
@@ -13,19 +16,37 @@ public class OllamaConfig {
 
     private String host;
     private Chat chat;
+    // Named model profiles, in addition to the "default" profile defined by chat
+    private Map<String, Chat> profiles = new LinkedHashMap<>();
+    // Profile of each operation ("parse", "chat"); operations without a route use "default"
+    private Map<String, Route> routes = new LinkedHashMap<>();
 
     @Getter
     @Setter
     public static class Chat {
         private String model;
+        // Options not set on a profile fall back to those of chat, one by one
         private Options options;
+        // Whether the model may think before answering, or null for the model's default
+        private Boolean think;
+        // How long Ollama keeps the model loaded after a request, e.g. "30m"; null for Ollama's default
+        private String keepAlive;
     }
 
     @Getter
     @Setter
     public static class Options {
-        private double temperature;
-        private int numCtx;
+        // Null when not set, so a profile can inherit it
+        private Double temperature;
+        private Integer numCtx;
+    }
+
+    @Getter
+    @Setter
+    public static class Route {
+        private String profile;
+        // Profile to retry with when the output of the route's profile fails validation
+        private String escalateTo;
     }
 
 }
@@ -2,16 +2,25 @@ package org.rkanaje.expense.ai.controller;
 
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.model.ChatEvent;
 import org.rkanaje.expense.ai.model.ChatInput;
 import org.rkanaje.expense.ai.model.ChatOutput;
 import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.service.AdmissionRejectedException;
+import org.rkanaje.expense.ai.service.BulkheadFullException;
 import org.rkanaje.expense.ai.service.ExpenseChatService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -20,11 +29,17 @@ import java.util.List;
 @Slf4j
 public class ExpenseChatController {
 
+    // Seconds a client is asked to wait when a backend is saturated
+    private static final String RETRY_AFTER_SECONDS = "2";
+
     private final ExpenseChatService expenseChatService;
+    private final long streamTimeoutMillis;
 
     @Autowired
-    public ExpenseChatController(ExpenseChatService expenseChatService) {
+    public ExpenseChatController(ExpenseChatService expenseChatService,
+                                 @Value("${expense.chat.stream.timeout-ms:300000}") long streamTimeoutMillis) {
         this.expenseChatService = expenseChatService;
+        this.streamTimeoutMillis = streamTimeoutMillis;
     }
 
 
@@ -37,6 +52,20 @@ public class ExpenseChatController {
             return ResponseEntity.ok().body(ChatOutput.builder()
                     .message(message)
                     .build());
+        } catch (AdmissionRejectedException e) {
+            log.warn("Rejected chat message: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(ChatOutput.builder()
+                            .message("I'm busy right now, please try again in a moment.")
+                            .build());
+        } catch (BulkheadFullException e) {
+            log.warn("Rejected chat message: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(ChatOutput.builder()
+                            .message("I'm busy right now, please try again in a moment.")
+                            .build());
         } catch (Exception e) {
             log.error("Error processing chat message: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -46,6 +75,52 @@ public class ExpenseChatController {
         }
     }
 
+    /**
+     * Streams the answer as Server-Sent Events: {@code token} events carry the visible
+     * text, {@code tool} events report tool calls and a final {@code done} or
+     * {@code error} event ends the stream. The model request is cancelled when the
+     * client disconnects or the stream times out.
+     */
+    @PostMapping(path = "/chat/stream",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE,
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public SseEmitter chatStream(@RequestBody @NonNull ChatInput input) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        Disposable subscription = expenseChatService.streamChatMessage(input.getMessage())
+                .subscribe(event -> send(emitter, event),
+                        error -> {
+                            if (error instanceof UncheckedIOException) {
+                                // The client went away, sending failed and cancelled the stream
+                                log.debug("Chat stream closed by client: {}", error.getMessage());
+                                return;
+                            }
+                            String message;
+                            if (error instanceof AdmissionRejectedException rejected) {
+                                // Headers may already be sent, so the rejection is an event
+                                log.warn("Rejected chat stream: {}", rejected.getMessage());
+                                message = "I'm busy right now, please try again in "
+                                        + rejected.getRetryAfterSeconds() + " seconds.";
+                            } else {
+                                log.error("Error streaming chat message: {}", error.getMessage(), error);
+                                message = "Sorry, I encountered an error processing your request.";
+                            }
+                            try {
+                                emitter.send(SseEmitter.event()
+                                        .name(ChatEvent.Type.ERROR.eventName())
+                                        .data(ChatEvent.error(message),
+                                                MediaType.APPLICATION_JSON));
+                                emitter.complete();
+                            } catch (IOException e) {
+                                emitter.completeWithError(e);
+                            }
+                        },
+                        emitter::complete);
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        return emitter;
+    }
+
     @PostMapping(path = "/parse",
             produces = MediaType.APPLICATION_JSON_VALUE,
             consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -53,10 +128,31 @@ public class ExpenseChatController {
         try {
             final List<Expense> expenses = expenseChatService.parseChatMessage(input.getMessage());
             return ResponseEntity.ok().body(expenses);
+        } catch (AdmissionRejectedException e) {
+            log.warn("Rejected parse request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(null);
+        } catch (BulkheadFullException e) {
+            log.warn("Rejected parse request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(null);
         } catch (Exception e) {
             log.error(e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    private static void send(SseEmitter emitter, ChatEvent event) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(event.getType().eventName())
+                    .data(event, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // Thrown out of onNext, this cancels the model request
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
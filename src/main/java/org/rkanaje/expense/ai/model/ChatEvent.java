@@ -0,0 +1,52 @@
+package org.rkanaje.expense.ai.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * An event of a streamed chat response. The type is sent as the SSE event name and
+ * the remaining fields as its JSON data.
+ */
+@Getter
+@Builder
+@ToString
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class ChatEvent {
+
+    public enum Type {
+        TOKEN, TOOL, DONE, ERROR;
+
+        public String eventName() {
+            return name().toLowerCase();
+        }
+    }
+
+    public enum ToolStatus {
+        STARTED, COMPLETED, FAILED
+    }
+
+    @JsonIgnore
+    private final Type type;
+    private final String text;
+    private final String tool;
+    private final ToolStatus status;
+
+    public static ChatEvent token(String text) {
+        return ChatEvent.builder().type(Type.TOKEN).text(text).build();
+    }
+
+    public static ChatEvent tool(String tool, ToolStatus status) {
+        return ChatEvent.builder().type(Type.TOOL).tool(tool).status(status).build();
+    }
+
+    public static ChatEvent done() {
+        return ChatEvent.builder().type(Type.DONE).build();
+    }
+
+    public static ChatEvent error(String text) {
+        return ChatEvent.builder().type(Type.ERROR).text(text).build();
+    }
+}
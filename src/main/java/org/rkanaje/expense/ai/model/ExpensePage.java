@@ -0,0 +1,18 @@
+package org.rkanaje.expense.ai.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of date-ordered expenses. {@code next} is the cursor to pass as {@code after}
+ * for the following page, or null on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class ExpensePage {
+
+    private List<Expense> expenses;
+    private String next;
+}
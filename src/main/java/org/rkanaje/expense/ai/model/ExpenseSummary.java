@@ -0,0 +1,34 @@
+package org.rkanaje.expense.ai.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Totals of the expenses of a year, optionally narrowed to a month and a topic.
+ * Breakdowns are keyed by month ({@code yyyy-MM}), by day ({@code yyyy-MM-dd}, only
+ * when a month is given) and by topic.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class ExpenseSummary {
+
+    private int year;
+    private Integer month;
+    private String topic;
+    private double total;
+    private int count;
+    private Map<String, Total> byMonth;
+    private Map<String, Total> byDay;
+    private Map<String, Total> byTopic;
+
+    @Data
+    @AllArgsConstructor
+    public static class Total {
+        private double total;
+        private int count;
+    }
+}
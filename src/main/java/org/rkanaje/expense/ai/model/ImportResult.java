@@ -0,0 +1,36 @@
+package org.rkanaje.expense.ai.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Progress or outcome of a CSV import. Progress reports have {@code done} set to false
+ * and carry no rejected rows; the final report lists up to the first 100 rejected rows.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportResult {
+
+    private boolean done;
+    private long rowsRead;
+    private long rowsRejected;
+    private long expensesWritten;
+    private long updated;
+    private long added;
+    private List<Integer> years;
+    private List<RejectedRow> rejected;
+    private String error;
+
+    @Data
+    @AllArgsConstructor
+    public static class RejectedRow {
+        private long line;
+        private String reason;
+    }
+}
@@ -0,0 +1,81 @@
+package org.rkanaje.expense.ai.repository;
+
+import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.service.ExpenseColumns;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Storage for expenses, organized by year.
+ * Expenses are identified by their date and their case-insensitive topic.
+ */
+public interface ExpenseRepository {
+
+    /**
+     * Returns all expenses of the given year sorted by date.
+     */
+    List<Expense> findByYear(int year);
+
+    /**
+     * Returns the expenses of each of the given years sorted by date.
+     * Implementations should read all years in a single round trip where the store allows it.
+     *
+     * @param years The years to read
+     * @return The expenses of every requested year; years without expenses map to an empty list
+     */
+    default Map<Integer, List<Expense>> findByYears(Collection<Integer> years) {
+        Map<Integer, List<Expense>> expenses = new TreeMap<>();
+        for (int year : years) {
+            expenses.put(year, findByYear(year));
+        }
+        return expenses;
+    }
+
+    /**
+     * Returns the expenses of the given year in columnar form. Stores that can decode
+     * rows directly into columns should override this to skip creating {@link Expense} objects.
+     */
+    default ExpenseColumns findColumnsByYear(int year) {
+        return ExpenseColumns.of(year, findByYear(year));
+    }
+
+    /**
+     * Returns the expenses of each of the given years in columnar form, see {@link #findByYears(Collection)}.
+     */
+    default Map<Integer, ExpenseColumns> findColumnsByYears(Collection<Integer> years) {
+        Map<Integer, ExpenseColumns> columns = new TreeMap<>();
+        findByYears(years).forEach((year, expenses) -> columns.put(year, ExpenseColumns.of(year, expenses)));
+        return columns;
+    }
+
+    /**
+     * Updates the expenses that already exist (matched by date and topic) and adds the others.
+     *
+     * @param year     The year all expenses belong to
+     * @param expenses The expenses to add or update
+     * @return Number of updated and added expenses
+     */
+    UpsertResult upsert(int year, List<Expense> expenses);
+
+    /**
+     * Deletes the expenses matching the date and topic of the given expenses.
+     *
+     * @param year     The year all expenses belong to
+     * @param expenses The expenses to delete (only date and topic are used for matching)
+     * @return Number of deleted expenses
+     */
+    int delete(int year, List<Expense> expenses);
+
+    /**
+     * Deletes one row per given expense, matching its date, topic and amount. Unlike
+     * {@link #delete(int, List)}, rows sharing a date and topic but with another amount are kept.
+     *
+     * @param year     The year all expenses belong to
+     * @param expenses The expenses to delete, as read from this repository
+     * @return Number of deleted expenses
+     */
+    int deleteExact(int year, List<Expense> expenses);
+}
@@ -0,0 +1,221 @@
+package org.rkanaje.expense.ai.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.model.Expense;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Stores expenses in a relational database. Expenses are keyed by
+ * {@code (expense_date, topic_key)}, which also serves year range scans.
+ * Upserts and deletes are sent as JDBC batches; an upsert is one {@code MERGE} (H2) or
+ * {@code INSERT ... ON CONFLICT} (PostgreSQL) statement per expense.
+ */
+@Slf4j
+@Primary
+@Repository
+@ConditionalOnProperty(name = "expense.store.type", havingValue = "jdbc")
+public class JdbcExpenseRepository implements ExpenseRepository {
+
+    private static final String SELECT_BY_DATE_RANGE =
+            "SELECT expense_date, topic, amount FROM expense " +
+                    "WHERE expense_date >= ? AND expense_date < ? ORDER BY expense_date, topic_key";
+    private static final String SELECT_KEYS_BY_DATE_RANGE =
+            "SELECT expense_date, topic_key FROM expense WHERE expense_date >= ? AND expense_date <= ?";
+    // Single-statement upserts, so concurrent writers of the same key cannot race into a duplicate key
+    private static final String UPSERT_H2 =
+            "MERGE INTO expense (expense_date, topic_key, topic, amount, updated_at) " +
+                    "KEY (expense_date, topic_key) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPSERT_POSTGRESQL =
+            "INSERT INTO expense (expense_date, topic_key, topic, amount, updated_at) VALUES (?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (expense_date, topic_key) DO UPDATE SET " +
+                    "topic = EXCLUDED.topic, amount = EXCLUDED.amount, updated_at = EXCLUDED.updated_at";
+    private static final String DELETE =
+            "DELETE FROM expense WHERE expense_date = ? AND topic_key = ?";
+    private static final String DELETE_EXACT =
+            "DELETE FROM expense WHERE expense_date = ? AND topic_key = ? AND amount = ?";
+    private static final String COUNT = "SELECT COUNT(*) FROM expense";
+
+    private static final RowMapper<Expense> EXPENSE_ROW_MAPPER = (rs, rowNum) -> Expense.builder()
+            .date(rs.getDate("expense_date").toLocalDate().toString())
+            .topic(rs.getString("topic"))
+            .amount(rs.getBigDecimal("amount").doubleValue())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsertStatement;
+
+    public JdbcExpenseRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsertStatement = upsertStatement(jdbcTemplate);
+    }
+
+    /**
+     * Returns the upsert statement of the database; H2 and PostgreSQL are supported.
+     */
+    private static String upsertStatement(JdbcTemplate jdbcTemplate) {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if ("H2".equalsIgnoreCase(product)) {
+            return UPSERT_H2;
+        }
+        if ("PostgreSQL".equalsIgnoreCase(product)) {
+            return UPSERT_POSTGRESQL;
+        }
+        throw new IllegalStateException("Unsupported database for the expense store: " + product);
+    }
+
+    @Override
+    public List<Expense> findByYear(int year) {
+        return jdbcTemplate.query(SELECT_BY_DATE_RANGE, EXPENSE_ROW_MAPPER,
+                Date.valueOf(LocalDate.of(year, 1, 1)),
+                Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+    }
+
+    /**
+     * Reads all years with one range scan from the first to the last requested year.
+     */
+    @Override
+    public Map<Integer, List<Expense>> findByYears(Collection<Integer> years) {
+        Map<Integer, List<Expense>> expenses = new TreeMap<>();
+        if (years.isEmpty()) {
+            return expenses;
+        }
+        years.forEach(year -> expenses.put(year, new ArrayList<>()));
+        int first = Collections.min(years);
+        int last = Collections.max(years);
+
+        jdbcTemplate.query(SELECT_BY_DATE_RANGE, rs -> {
+            Expense expense = EXPENSE_ROW_MAPPER.mapRow(rs, 0);
+            List<Expense> yearExpenses = expenses.get(rs.getDate("expense_date").toLocalDate().getYear());
+            if (yearExpenses != null) {
+                yearExpenses.add(expense);
+            }
+        }, Date.valueOf(LocalDate.of(first, 1, 1)), Date.valueOf(LocalDate.of(last + 1, 1, 1)));
+        return expenses;
+    }
+
+    @Override
+    @Transactional
+    public UpsertResult upsert(int year, List<Expense> expenses) {
+        if (expenses == null || expenses.isEmpty()) {
+            return new UpsertResult(0, 0);
+        }
+
+        // Later entries for the same key win, as they would when written one by one
+        Map<String, Expense> byKey = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            byKey.put(expense.getDate() + "|" + topicKey(expense), expense);
+        }
+        List<Expense> unique = new ArrayList<>(byKey.values());
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        // Only used to report updated and added counts; the upsert itself does not depend on it
+        Set<String> existing = existingKeys(unique);
+        int updated = 0;
+        for (Expense expense : unique) {
+            if (existing.contains(expense.getDate() + "|" + topicKey(expense))) {
+                updated++;
+            }
+        }
+
+        jdbcTemplate.batchUpdate(upsertStatement, unique, unique.size(), (ps, expense) -> {
+            ps.setDate(1, Date.valueOf(expense.getDate()));
+            ps.setString(2, topicKey(expense));
+            ps.setString(3, expense.getTopic());
+            ps.setBigDecimal(4, amount(expense));
+            ps.setTimestamp(5, now);
+        });
+
+        int added = unique.size() - updated;
+        log.debug("Upserted {} expense(s) for year {}: {} updated, {} added", unique.size(), year, updated, added);
+        return new UpsertResult(updated, added);
+    }
+
+    private Set<String> existingKeys(List<Expense> expenses) {
+        LocalDate first = null;
+        LocalDate last = null;
+        for (Expense expense : expenses) {
+            LocalDate date = LocalDate.parse(expense.getDate());
+            first = first == null || date.isBefore(first) ? date : first;
+            last = last == null || date.isAfter(last) ? date : last;
+        }
+        Set<String> keys = new HashSet<>();
+        jdbcTemplate.query(SELECT_KEYS_BY_DATE_RANGE, rs -> {
+            keys.add(rs.getDate("expense_date").toLocalDate() + "|" + rs.getString("topic_key"));
+        }, Date.valueOf(first), Date.valueOf(last));
+        return keys;
+    }
+
+    @Override
+    @Transactional
+    public int delete(int year, List<Expense> expenses) {
+        if (expenses == null || expenses.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(DELETE, expenses, expenses.size(), (ps, expense) -> {
+            ps.setDate(1, Date.valueOf(expense.getDate()));
+            ps.setString(2, topicKey(expense));
+        });
+        return sum(counts[0]);
+    }
+
+    /**
+     * The key is unique here, so the amount only guards against deleting a row that was
+     * changed since the expenses were read.
+     */
+    @Override
+    @Transactional
+    public int deleteExact(int year, List<Expense> expenses) {
+        if (expenses == null || expenses.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(DELETE_EXACT, expenses, expenses.size(), (ps, expense) -> {
+            ps.setDate(1, Date.valueOf(expense.getDate()));
+            ps.setString(2, topicKey(expense));
+            ps.setBigDecimal(3, amount(expense));
+        });
+        return sum(counts[0]);
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        Long count = jdbcTemplate.queryForObject(COUNT, Long.class);
+        return count == null || count == 0;
+    }
+
+    private static String topicKey(Expense expense) {
+        return expense.getTopic().toLowerCase();
+    }
+
+    private static BigDecimal amount(Expense expense) {
+        return BigDecimal.valueOf(expense.getAmount()).setScale(2, RoundingMode.HALF_UP);
+    }
+}
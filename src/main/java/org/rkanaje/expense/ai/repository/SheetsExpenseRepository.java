@@ -0,0 +1,408 @@
+package org.rkanaje.expense.ai.repository;
+
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.BatchGetValuesResponse;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.service.ExpenseColumns;
+import org.rkanaje.expense.ai.service.SheetRowDecoder;
+import org.rkanaje.expense.ai.service.SheetTabRegistry;
+import org.rkanaje.expense.ai.service.SheetsClient;
+import org.rkanaje.expense.ai.service.SheetsDeltaWriter;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Stores expenses in one Google Sheet per year, named {@code Expense_<year>}.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class SheetsExpenseRepository implements ExpenseRepository {
+
+    public static final String SHEET_PREFIX = "Expense_";
+    private static final String RANGE = "A:C"; // Columns: Date, Amount, Description
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final List<Object> HEADER_ROW = List.of("Date", "Amount", "Description");
+    // Query reads decode raw cell values; writes still compare the formatted values they wrote
+    private static final String VALUE_RENDER_OPTION = "UNFORMATTED_VALUE";
+    private static final String DATE_TIME_RENDER_OPTION = "SERIAL_NUMBER";
+    private static final int MAX_LOGGED_MALFORMED_ROWS = 20;
+
+    private final Sheets sheetsService;
+    private final String spreadsheetId;
+    private final SheetsClient sheetsClient;
+    private final SheetsDeltaWriter deltaWriter;
+    private final SheetTabRegistry tabRegistry;
+    private final MeterRegistry meterRegistry;
+    // Row indexes are only valid until the next write, so writes to a sheet are serialized
+    private final Map<String, Lock> sheetLocks = new ConcurrentHashMap<>();
+
+    @Override
+    public List<Expense> findByYear(int year) {
+        return findColumnsByYear(year).asList();
+    }
+
+    @Override
+    public Map<Integer, List<Expense>> findByYears(Collection<Integer> years) {
+        Map<Integer, List<Expense>> expenses = new TreeMap<>();
+        findColumnsByYears(years).forEach((year, columns) -> expenses.put(year, columns.asList()));
+        return expenses;
+    }
+
+    @Override
+    public ExpenseColumns findColumnsByYear(int year) {
+        String sheetName = SHEET_PREFIX + year;
+
+        try {
+            // First, check if the sheet exists
+            if (!tabRegistry.exists(sheetName)) {
+                log.info("Sheet '{}' does not exist, returning empty list", sheetName);
+                return ExpenseColumns.builder(year, 0).build();
+            }
+
+            Sheets.Spreadsheets.Values.Get request = sheetsService.spreadsheets().values()
+                    .get(spreadsheetId, sheetName + "!" + RANGE)
+                    .setValueRenderOption(VALUE_RENDER_OPTION)
+                    .setDateTimeRenderOption(DATE_TIME_RENDER_OPTION);
+            return decode(year, sheetsClient.read(request).getValues());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the sheets of all existing years with one {@code values.batchGet} call.
+     */
+    @Override
+    public Map<Integer, ExpenseColumns> findColumnsByYears(Collection<Integer> years) {
+        Map<Integer, ExpenseColumns> columns = new TreeMap<>();
+        List<String> sheetNames = new ArrayList<>();
+        try {
+            for (int year : years) {
+                columns.put(year, ExpenseColumns.builder(year, 0).build());
+                if (tabRegistry.exists(SHEET_PREFIX + year)) {
+                    sheetNames.add(SHEET_PREFIX + year);
+                }
+            }
+            if (sheetNames.isEmpty()) {
+                return columns;
+            }
+
+            BatchGetValuesResponse response = sheetsClient.read(sheetsService.spreadsheets().values()
+                    .batchGet(spreadsheetId)
+                    .setRanges(sheetNames.stream().map(name -> name + "!" + RANGE).toList())
+                    .setValueRenderOption(VALUE_RENDER_OPTION)
+                    .setDateTimeRenderOption(DATE_TIME_RENDER_OPTION));
+
+            // Value ranges are returned in the order of the requested ranges
+            List<ValueRange> valueRanges = response.getValueRanges();
+            for (int i = 0; i < sheetNames.size(); i++) {
+                int year = Integer.parseInt(sheetNames.get(i).substring(SHEET_PREFIX.length()));
+                columns.put(year, decode(year, valueRanges.get(i).getValues()));
+            }
+            log.debug("Read {} year sheet(s) in one batch", sheetNames.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return columns;
+    }
+
+    @Override
+    public UpsertResult upsert(int year, List<Expense> expenses) {
+        if (expenses == null || expenses.isEmpty()) {
+            return new UpsertResult(0, 0);
+        }
+        String sheetName = SHEET_PREFIX + year;
+
+        Lock lock = sheetLock(sheetName);
+        lock.lock();
+        try {
+            tabRegistry.ensureSheet(sheetName, HEADER_ROW);
+            List<List<Object>> values = readValues(sheetName);
+
+            // Create a map of existing expenses for quick lookup (date|topic -> row index);
+            // of duplicate rows the last one is updated, as ExpenseColumns.withUpserts does
+            Map<String, Integer> existingExpenses = indexRows(values);
+
+            Map<Integer, List<Object>> updatedRows = new HashMap<>();
+            List<List<Object>> addedRows = new ArrayList<>();
+
+            // Process each expense to add/update
+            for (Expense expense : expenses) {
+                List<Object> newRow = createRowData(expense);
+                Integer rowIndex = existingExpenses.get(key(expense));
+                if (rowIndex != null) {
+                    // Update existing row in place
+                    updatedRows.put(rowIndex, newRow);
+                } else {
+                    // Append new row
+                    addedRows.add(newRow);
+                }
+            }
+            UpsertResult result = new UpsertResult(updatedRows.size(), addedRows.size());
+
+            // Write only the changed rows; an empty sheet also needs its header
+            if (values.isEmpty()) {
+                addedRows.add(0, HEADER_ROW);
+            }
+            deltaWriter.writeRows(sheetName, values.size(), updatedRows, addedRows);
+
+            log.info("Updated sheet {}: {} updated, {} added", sheetName, result.getUpdated(), result.getAdded());
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int delete(int year, List<Expense> expenses) {
+        if (expenses == null || expenses.isEmpty()) {
+            return 0;
+        }
+        String sheetName = SHEET_PREFIX + year;
+
+        Lock lock = sheetLock(sheetName);
+        lock.lock();
+        try {
+            if (!tabRegistry.exists(sheetName)) {
+                return 0;
+            }
+            List<List<Object>> values = readValues(sheetName);
+
+            // Create a set of (date, topic) pairs to delete for faster lookup
+            Set<String> deleteKeys = expenses.stream()
+                    .map(this::key)
+                    .collect(Collectors.toSet());
+
+            // Collect the indexes of rows that match the delete criteria
+            List<Integer> rowsToDelete = new ArrayList<>();
+            for (int i = 1; i < values.size(); i++) {
+                String rowKey = rowKey(values.get(i));
+                if (rowKey != null && deleteKeys.contains(rowKey)) {
+                    rowsToDelete.add(i);
+                }
+            }
+
+            // Only touch the sheet if there were matches
+            if (rowsToDelete.isEmpty()) {
+                return 0;
+            }
+            return deltaWriter.deleteRows(sheetId(sheetName), rowsToDelete);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int deleteExact(int year, List<Expense> expenses) {
+        if (expenses == null || expenses.isEmpty()) {
+            return 0;
+        }
+        String sheetName = SHEET_PREFIX + year;
+
+        Lock lock = sheetLock(sheetName);
+        lock.lock();
+        try {
+            if (!tabRegistry.exists(sheetName)) {
+                return 0;
+            }
+            List<List<Object>> values = readValues(sheetName);
+
+            // Each expense claims the first unclaimed row with its key and amount
+            Map<String, List<Expense>> remaining = new HashMap<>();
+            for (Expense expense : expenses) {
+                remaining.computeIfAbsent(key(expense), k -> new ArrayList<>()).add(expense);
+            }
+            List<Integer> rowsToDelete = new ArrayList<>();
+            for (int i = 1; i < values.size(); i++) {
+                List<Object> row = values.get(i);
+                List<Expense> candidates = remaining.get(rowKey(row));
+                if (candidates == null) {
+                    continue;
+                }
+                for (Iterator<Expense> it = candidates.iterator(); it.hasNext(); ) {
+                    if (sameAmount(row, it.next())) {
+                        it.remove();
+                        rowsToDelete.add(i);
+                        break;
+                    }
+                }
+            }
+
+            if (rowsToDelete.isEmpty()) {
+                return 0;
+            }
+            return deltaWriter.deleteRows(sheetId(sheetName), rowsToDelete);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes the sheet of the given year hold exactly the given expenses, writing only
+     * the rows that differ. Rows that cannot be parsed are left untouched.
+     *
+     * @param year     The year to mirror
+     * @param expenses The expenses the sheet should contain
+     */
+    public void mirror(int year, List<Expense> expenses) {
+        String sheetName = SHEET_PREFIX + year;
+
+        Lock lock = sheetLock(sheetName);
+        lock.lock();
+        try {
+            if (expenses.isEmpty() && !tabRegistry.exists(sheetName)) {
+                return;
+            }
+            tabRegistry.ensureSheet(sheetName, HEADER_ROW);
+            List<List<Object>> values = readValues(sheetName);
+
+            Map<String, Expense> desired = new LinkedHashMap<>();
+            for (Expense expense : expenses) {
+                desired.put(key(expense), expense);
+            }
+
+            Map<Integer, List<Object>> updatedRows = new HashMap<>();
+            List<Integer> rowsToDelete = new ArrayList<>();
+            for (int i = 1; i < values.size(); i++) {
+                List<Object> row = values.get(i);
+                String rowKey = rowKey(row);
+                if (rowKey == null) {
+                    continue;
+                }
+                Expense expense = desired.remove(rowKey);
+                if (expense == null) {
+                    rowsToDelete.add(i);
+                } else if (!sameAmount(row, expense) || !row.get(2).toString().equals(expense.getTopic())) {
+                    updatedRows.put(i, createRowData(expense));
+                }
+            }
+
+            List<List<Object>> addedRows = new ArrayList<>();
+            if (values.isEmpty()) {
+                addedRows.add(HEADER_ROW);
+            }
+            desired.values().forEach(expense -> addedRows.add(createRowData(expense)));
+
+            // Appends land after the last row, so deleting afterwards keeps all indexes valid
+            deltaWriter.writeRows(sheetName, values.size(), updatedRows, addedRows);
+            deltaWriter.deleteRows(sheetId(sheetName), rowsToDelete);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ExpenseColumns decode(int year, List<List<Object>> values) {
+        SheetRowDecoder.Result result = SheetRowDecoder.decode(year, values != null ? values : Collections.emptyList());
+        List<SheetRowDecoder.MalformedRow> malformed = result.getMalformedRows();
+        if (!malformed.isEmpty()) {
+            meterRegistry.counter("expense.sheet.rows.malformed", "year", String.valueOf(year))
+                    .increment(malformed.size());
+            log.warn("Skipped {} malformed row(s) in {}{}: {}", malformed.size(), SHEET_PREFIX, year,
+                    malformed.subList(0, Math.min(malformed.size(), MAX_LOGGED_MALFORMED_ROWS)));
+        }
+        return result.getColumns();
+    }
+
+    /**
+     * Reads the formatted rows of a sheet for a write. These reads bypass read coalescing,
+     * since a shared read may have started before the last write and would yield stale row indexes.
+     */
+    private List<List<Object>> readValues(String sheetName) throws IOException {
+        ValueRange response = sheetsClient.execute(sheetsService.spreadsheets().values()
+                .get(spreadsheetId, sheetName + "!" + RANGE));
+        List<List<Object>> values = response.getValues();
+        return values != null ? values : Collections.emptyList();
+    }
+
+    private int sheetId(String sheetName) throws IOException {
+        return tabRegistry.getSheetId(sheetName)
+                .orElseThrow(() -> new IOException("Sheet not found: " + sheetName));
+    }
+
+    private Map<String, Integer> indexRows(List<List<Object>> values) {
+        Map<String, Integer> rows = new HashMap<>();
+        for (int i = 1; i < values.size(); i++) {
+            String rowKey = rowKey(values.get(i));
+            if (rowKey != null) {
+                rows.put(rowKey, i);
+            }
+        }
+        return rows;
+    }
+
+    private String rowKey(List<Object> row) {
+        if (row.size() < 3) { // Ensure we have date, amount, and topic
+            return null;
+        }
+        return row.get(0).toString() + "|" + row.get(2).toString().toLowerCase();
+    }
+
+    private String key(Expense expense) {
+        return expense.getDate() + "|" + expense.getTopic().toLowerCase();
+    }
+
+    private boolean sameAmount(List<Object> row, Expense expense) {
+        try {
+            return Math.abs(Double.parseDouble(row.get(1).toString()) - expense.getAmount()) < 0.001;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private Lock sheetLock(String sheetName) {
+        // Not a monitor: a virtual thread blocked on Sheets I/O under a monitor pins its carrier
+        return sheetLocks.computeIfAbsent(sheetName, name -> new ReentrantLock());
+    }
+
+    /**
+     * Creates a single row of data from an Expense object
+     */
+    private List<Object> createRowData(Expense expense) {
+        List<Object> row = new ArrayList<>();
+        // Format: Date, Amount, Description
+        try {
+            // Ensure date is properly formatted
+            String formattedDate = expense.getDate() != null
+                    ? LocalDate.parse(expense.getDate()).format(DATE_FORMATTER)
+                    : LocalDate.now().format(DATE_FORMATTER);
+            row.add(formattedDate);
+            row.add(expense.getAmount());
+            row.add(expense.getTopic());
+        } catch (Exception e) {
+            log.error("Error formatting expense data: {}", expense, e);
+            throw new IllegalArgumentException("Invalid expense data format");
+        }
+        return row;
+    }
+}
@@ -0,0 +1,9 @@
+package org.rkanaje.expense.ai.repository;
+
+import lombok.Value;
+
+@Value
+public class UpsertResult {
+    int updated;
+    int added;
+}
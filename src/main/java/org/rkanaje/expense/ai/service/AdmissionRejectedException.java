@@ -0,0 +1,22 @@
+package org.rkanaje.expense.ai.service;
+
+/**
+ * Thrown when a model call is not admitted because too many calls are queued or it would
+ * not start before its deadline.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Returns how long the caller should wait before trying again.
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,65 @@
+package org.rkanaje.expense.ai.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrent calls to one backend, so a slow backend holds at most
+ * that many request threads. A caller waits up to the configured time for a permit and
+ * is then rejected with a {@link BulkheadFullException}.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    public Bulkhead(String name, int maxConcurrent, long maxWaitMillis, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("bulkhead.active", this, Bulkhead::active)
+                .tag("backend", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("bulkhead.rejected")
+                .tag("backend", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a permit, which must be given back with {@link #release()}.
+     *
+     * @throws BulkheadFullException If no permit became free in time
+     */
+    public void acquire() {
+        try {
+            if (permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        throw new BulkheadFullException(name);
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public String getName() {
+        return name;
+    }
+}
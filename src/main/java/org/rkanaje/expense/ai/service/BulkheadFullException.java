@@ -0,0 +1,18 @@
+package org.rkanaje.expense.ai.service;
+
+/**
+ * Thrown when a backend already serves as many calls as its {@link Bulkhead} allows.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    private final String backend;
+
+    public BulkheadFullException(String backend) {
+        super("Too many concurrent " + backend + " calls");
+        this.backend = backend;
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+}
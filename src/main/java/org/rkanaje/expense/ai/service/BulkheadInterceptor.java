@@ -0,0 +1,48 @@
+package org.rkanaje.expense.ai.service;
+
+import org.rkanaje.expense.service.FilteredClientHttpResponseWrapper;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds a {@link Bulkhead} permit from sending a request until its response is closed.
+ */
+public class BulkheadInterceptor implements ClientHttpRequestInterceptor {
+
+    private final Bulkhead bulkhead;
+
+    public BulkheadInterceptor(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        bulkhead.acquire();
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        return new FilteredClientHttpResponseWrapper(response, response.getBody()) {
+            @Override
+            public void close() {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        bulkhead.release();
+                    }
+                }
+            }
+        };
+    }
+}
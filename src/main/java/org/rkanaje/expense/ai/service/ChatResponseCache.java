@@ -0,0 +1,214 @@
+package org.rkanaje.expense.ai.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.rkanaje.expense.ai.tool.DateTool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of model answers keyed on the normalized message.
+ * Messages are lower-cased, whitespace is collapsed and relative dates such as "today" or
+ * "last Friday" are replaced by the date they stand for. The key also holds the current
+ * date from {@link DateTool#getDate()}, since answers default to today.
+ * Concurrent requests for the same key wait for a single model call. Entries expire
+ * after a TTL, the least recently used are evicted past the size limit, and entries
+ * that read a year are dropped when that year changes.
+ */
+@Component
+public class ChatResponseCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final DateTool dateTool;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Result<?>>> inFlight = new ConcurrentHashMap<>();
+    // Write number of the last change of each year, to drop loads that raced with a write
+    private final Map<Integer, Long> changedAt = new HashMap<>();
+    private long writes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public ChatResponseCache(DateTool dateTool,
+                             @Value("${expense.chat.cache.enabled:true}") boolean enabled,
+                             @Value("${expense.chat.cache.max-entries:1000}") int maxEntries,
+                             @Value("${expense.chat.cache.ttl-ms:600000}") long ttlMillis,
+                             MeterRegistry meterRegistry) {
+        this.dateTool = dateTool;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+
+        FunctionCounter.builder("expense.chat.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("expense.chat.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("expense.chat.cache.requests", coalesced, AtomicLong::get)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("expense.chat.cache.size", this, ChatResponseCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached answer to the message, or loads it. A load that is already
+     * running for the same message is shared. The returned value is shared too and must
+     * not be modified.
+     *
+     * @param operation Separates the answers of different operations, e.g. {@code parse}
+     * @param message   The user message
+     * @param loader    Produces the answer and the years it read
+     * @return The answer
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String operation, String message, Supplier<Result<T>> loader) {
+        if (!enabled) {
+            return loader.get().getValue();
+        }
+        String key = key(operation, message);
+        long started;
+        synchronized (this) {
+            Entry cached = lookup(key);
+            if (cached != null) {
+                return (T) cached.result.getValue();
+            }
+            started = writes;
+        }
+
+        CompletableFuture<Result<?>> call = new CompletableFuture<>();
+        CompletableFuture<Result<?>> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return (T) await(running).getValue();
+        }
+
+        try {
+            Result<T> result = loader.get();
+            call.complete(result);
+            if (result.isCacheable()) {
+                synchronized (this) {
+                    store(key, result, started);
+                }
+            }
+            return result.getValue();
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    @EventListener
+    public synchronized void onExpensesChanged(ExpensesChangedEvent event) {
+        changedAt.put(event.getYear(), ++writes);
+        entries.values().removeIf(entry -> entry.result.getYears().contains(event.getYear()));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the cache key of the message.
+     */
+    String key(String operation, String message) {
+        LocalDate today = LocalDate.parse(dateTool.getDate());
+        String text = WHITESPACE.matcher(message.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+        String normalized = FastPathExpenseParser.RELATIVE_DATE.matcher(text)
+                .replaceAll(match -> FastPathExpenseParser.relativeDate(match, today).toString());
+        return operation + '\n' + today + '\n' + normalized;
+    }
+
+    private Entry lookup(String key) {
+        Entry cached = entries.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.storedAt > ttlMillis) {
+            entries.remove(key);
+            cached = null;
+        }
+        (cached != null ? hits : misses).incrementAndGet();
+        return cached;
+    }
+
+    private void store(String key, Result<?> result, long started) {
+        for (int year : result.getYears()) {
+            if (changedAt.getOrDefault(year, 0L) > started) {
+                // A year the answer read changed while it was produced
+                return;
+            }
+        }
+        entries.put(key, new Entry(result, System.currentTimeMillis()));
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private static Result<?> await(CompletableFuture<Result<?>> call) {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared answer", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * An answer with the years of expenses it was based on.
+     */
+    @lombok.Value
+    public static class Result<T> {
+        T value;
+        Set<Integer> years;
+        boolean cacheable;
+
+        public static <T> Result<T> of(T value, Set<Integer> years) {
+            return new Result<>(value, years, true);
+        }
+
+        public static <T> Result<T> uncached(T value) {
+            return new Result<>(value, Set.of(), false);
+        }
+    }
+
+    private static class Entry {
+
+        private final Result<?> result;
+        private final long storedAt;
+
+        Entry(Result<?> result, long storedAt) {
+            this.result = result;
+            this.storedAt = storedAt;
+        }
+    }
+}
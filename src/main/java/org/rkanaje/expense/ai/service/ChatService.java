@@ -1,25 +1,15 @@
 package org.rkanaje.expense.ai.service;
 
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-
 public class ChatService {
 
-    private final ResourceLoader resourceLoader;
+    private final PromptTemplateRegistry promptTemplates;
 
-    protected ChatService(ResourceLoader resourceLoader) {
-        this.resourceLoader = resourceLoader;
+    protected ChatService(PromptTemplateRegistry promptTemplates) {
+        this.promptTemplates = promptTemplates;
     }
 
-    protected String getSystemPrompt(String promptFile) throws IOException {
-        Resource resource = resourceLoader.getResource(promptFile);
-        try (InputStream inputStream = resource.getInputStream()) {
-            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-        }
+    protected String getSystemPrompt(String templateName) {
+        return promptTemplates.render(templateName);
     }
 
 }
@@ -0,0 +1,35 @@
+package org.rkanaje.expense.ai.service;
+
+import lombok.Builder;
+import lombok.Value;
+import org.rkanaje.expense.ai.model.Expense;
+
+/**
+ * New values for expenses matched by an {@link ExpenseQuery}. Fields left null keep the
+ * value of each matched expense.
+ */
+@Value
+@Builder
+public class ExpenseChange {
+
+    Double amount;
+    String topic;
+    String date;
+
+    public boolean isEmpty() {
+        return amount == null && topic == null && date == null;
+    }
+
+    /**
+     * Returns true if the change gives expenses a new date or topic, which identify them.
+     */
+    boolean changesKey() {
+        return topic != null || date != null;
+    }
+
+    Expense applyTo(Expense expense) {
+        return new Expense(amount != null ? amount : expense.getAmount(),
+                topic != null ? topic : expense.getTopic(),
+                date != null ? date : expense.getDate());
+    }
+}
@@ -1,48 +1,107 @@
 package org.rkanaje.expense.ai.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.model.ChatEvent;
 import org.rkanaje.expense.ai.model.Expense;
 import org.rkanaje.expense.ai.tool.DateTool;
 import org.rkanaje.expense.ai.tool.GoogleSheetsTool;
+import org.rkanaje.expense.ai.utils.ThinkTagFilter;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class ExpenseChatService extends ChatService {
 
+    private static final String UPDATE_TOOL = "updateExpensesByYear";
+    private static final Set<String> WRITE_TOOLS = Set.of(
+            UPDATE_TOOL, "deleteExpensesMatching", "deleteAllExpensesOfYear", "updateExpensesMatching");
+    private static final Set<String> QUESTION_WORDS = Set.of(
+            "how", "what", "which", "when", "where", "did", "do", "show", "list", "total", "sum");
+    private static final Set<String> WRITE_WORDS = Set.of(
+            "add", "record", "log", "delete", "remove", "clear", "update", "change", "edit", "undo",
+            "replace", "move", "set", "fix");
+
     private final ChatClient chatClient;
     private final GoogleSheetsTool sheetsUpdateTool;
-    private final DateTool dateTool;
+    private final ToolCallback[] toolCallbacks;
+    private final FastPathExpenseParser fastPathParser;
+    private final boolean fastPathEnabled;
+    private final MeterRegistry meterRegistry;
+    private final ChatResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+    private final ParseBatcher parseBatcher;
+    private final ModelAdmission admission;
+    private final ModelRouter modelRouter;
 
     @Autowired
     public ExpenseChatService(ChatClient chatClient,
                               DateTool dateTool,
                               GoogleSheetsTool sheetsUpdateTool,
-                              ResourceLoader resourceLoader) {
-        super(resourceLoader);
+                              PromptTemplateRegistry promptTemplates,
+                              FastPathExpenseParser fastPathParser,
+                              @Value("${expense.fast-path.enabled:true}") boolean fastPathEnabled,
+                              MeterRegistry meterRegistry,
+                              ChatResponseCache responseCache,
+                              ObjectMapper objectMapper,
+                              ParseBatcher parseBatcher,
+                              ModelAdmission admission,
+                              ModelRouter modelRouter) {
+        super(promptTemplates);
         this.chatClient = chatClient;
         this.sheetsUpdateTool = sheetsUpdateTool;
-        this.dateTool = dateTool;
+        this.toolCallbacks = ToolCallbacks.from(sheetsUpdateTool, dateTool);
+        this.fastPathParser = fastPathParser;
+        this.fastPathEnabled = fastPathEnabled;
+        this.meterRegistry = meterRegistry;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+        this.parseBatcher = parseBatcher;
+        this.admission = admission;
+        this.modelRouter = modelRouter;
     }
 
     public List<Expense> parseChatMessage(String message) {
+        Optional<List<Expense>> parsed = fastPath("parse", message);
+        if (parsed.isPresent()) {
+            return parsed.get();
+        }
         try {
-            final String systemPrompt = getSystemPrompt("classpath:prompts/system_expense.template");
-            // Call the chat client with the system prompt and user message
-            // Using response binding to directly parse into List<Expense>
-            return chatClient.prompt()
-                    .system(systemPrompt)
-                    .user(message)
-                    .call()
-                    .entity(new ParameterizedTypeReference<List<Expense>>() {
-                    });
+            List<Expense> expenses = responseCache.get("parse", message,
+                    () -> ChatResponseCache.Result.of(parseWithModel(message), Set.of()));
+            // The cached list is shared, hand out copies
+            return expenses.stream()
+                    .map(expense -> new Expense(expense.getAmount(), expense.getTopic(), expense.getDate()))
+                    .collect(Collectors.toList());
+        } catch (BulkheadFullException | AdmissionRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error processing chat message", e);
             throw new RuntimeException("Failed to process expense information. Please try again.", e);
@@ -50,21 +109,313 @@ public class ExpenseChatService extends ChatService {
     }
 
     public String processChatMessage(String message) {
+        Optional<List<Expense>> parsed = fastPath("chat", message);
+        if (parsed.isPresent()) {
+            try {
+                return recordExpenses(parsed.get());
+            } catch (RuntimeException e) {
+                log.error("Error recording expenses: {}", e.getMessage(), e);
+                return "I'm sorry, I encountered an error while processing your request. Please try again or rephrase your message.";
+            }
+        }
         try {
-            final String systemPrompt = getSystemPrompt("classpath:prompts/system_expense_with_tools.template");
-            
-            // Use the chat client with tool invocation
-            return chatClient.prompt()
-                    .system(systemPrompt)
-                    .user(message)
-                    .tools(Arrays.asList(sheetsUpdateTool, dateTool).toArray())
-                    .call()
-                    .content().trim();
-                    
+            if (!isQuestion(message)) {
+                return answer(message, (tool, input, status) -> {
+                });
+            }
+            // Questions are answered from the cache unless answering them changed expenses
+            return responseCache.get("chat", message, () -> {
+                ToolCallRecorder recorder = new ToolCallRecorder();
+                String answer = answer(message, recorder);
+                return recorder.wrote
+                        ? ChatResponseCache.Result.uncached(answer)
+                        : ChatResponseCache.Result.of(answer, Set.copyOf(recorder.years));
+            });
+        } catch (BulkheadFullException | AdmissionRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error processing chat message: {}", e.getMessage(), e);
             return "I'm sorry, I encountered an error while processing your request. Please try again or rephrase your message.";
         }
     }
 
+    /**
+     * Streams the answer to a chat message as it is generated. Think segments are removed
+     * on the fly, tool calls are reported with started and completed or failed events,
+     * and the stream ends with a done event. Cancelling the subscription cancels the
+     * model request; a tool call already running still finishes. A stream that is not
+     * admitted by {@link ModelAdmission} fails with an {@link AdmissionRejectedException}.
+     *
+     * @param message The user message
+     * @return The events of the answer
+     */
+    public Flux<ChatEvent> streamChatMessage(String message) {
+        Optional<List<Expense>> parsed = fastPath("chat", message);
+        if (parsed.isPresent()) {
+            return Flux.<ChatEvent>create(sink -> {
+                sink.next(ChatEvent.tool(UPDATE_TOOL, ChatEvent.ToolStatus.STARTED));
+                try {
+                    String reply = recordExpenses(parsed.get());
+                    sink.next(ChatEvent.tool(UPDATE_TOOL, ChatEvent.ToolStatus.COMPLETED));
+                    sink.next(ChatEvent.token(reply));
+                    sink.next(ChatEvent.done());
+                    sink.complete();
+                } catch (RuntimeException e) {
+                    sink.next(ChatEvent.tool(UPDATE_TOOL, ChatEvent.ToolStatus.FAILED));
+                    sink.error(e);
+                }
+            }).subscribeOn(Schedulers.boundedElastic());
+        }
+        // Waiting for a permit blocks, so it happens on a bounded elastic thread rather than
+        // the subscribing request thread; the permit is held until the stream ends or is cancelled
+        return Flux.using(
+                        () -> admission.acquire(ModelAdmission.Priority.CHAT),
+                        permit -> streamFromModel(message),
+                        ModelAdmission.Permit::release)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Flux<ChatEvent> streamFromModel(String message) {
+        return Flux.create(sink -> {
+            ModelRouter.Profile profile = modelRouter.route("chat");
+            final String systemPrompt = profile.system(getSystemPrompt("system_expense_with_tools"));
+
+            ThinkTagFilter filter = new ThinkTagFilter();
+            Disposable subscription = chatClient.prompt()
+                    .options(profile.options())
+                    .system(systemPrompt)
+                    .user(message)
+                    .toolCallbacks(listenedTo((tool, input, status) -> sink.next(ChatEvent.tool(tool, status))))
+                    .stream()
+                    .content()
+                    .subscribe(chunk -> emit(sink, filter.accept(chunk)),
+                            sink::error,
+                            () -> {
+                                emit(sink, filter.finish());
+                                sink.next(ChatEvent.done());
+                                sink.complete();
+                            });
+            sink.onDispose(subscription::dispose);
+        });
+    }
+
+    private List<Expense> parseWithModel(String message) {
+        if (parseBatcher.isEnabled()) {
+            Optional<List<Expense>> batched = parseBatcher.parse(message);
+            if (batched.isPresent()) {
+                return batched.get();
+            }
+        }
+        return admission.call(ModelAdmission.Priority.PARSE, () -> {
+            ModelRouter.Profile profile = modelRouter.route("parse");
+            Optional<ModelRouter.Profile> escalation = modelRouter.escalation("parse");
+            if (escalation.isEmpty()) {
+                return extract(profile, message);
+            }
+            try {
+                List<Expense> expenses = extract(profile, message);
+                if (isValid(expenses)) {
+                    return expenses;
+                }
+                log.debug("Invalid parse from profile {}, escalating to {}", profile.getName(), escalation.get().getName());
+            } catch (BulkheadFullException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                log.debug("Parse with profile {} failed, escalating to {}: {}",
+                        profile.getName(), escalation.get().getName(), e.getMessage());
+            }
+            Counter.builder("expense.model.escalations")
+                    .tag("operation", "parse")
+                    .tag("profile", escalation.get().getName())
+                    .register(meterRegistry)
+                    .increment();
+            return extract(escalation.get(), message);
+        });
+    }
+
+    private List<Expense> extract(ModelRouter.Profile profile, String message) {
+        // Using response binding to directly parse into List<Expense>
+        return chatClient.prompt()
+                .options(profile.options())
+                .system(profile.system(getSystemPrompt("system_expense")))
+                .user(message)
+                .call()
+                .entity(new ParameterizedTypeReference<List<Expense>>() {
+                });
+    }
+
+    private String answer(String message, ToolCallListener listener) {
+        ModelRouter.Profile profile = modelRouter.route("chat");
+        final String systemPrompt = profile.system(getSystemPrompt("system_expense_with_tools"));
+
+        // Use the chat client with tool invocation
+        return admission.call(ModelAdmission.Priority.CHAT, () -> chatClient.prompt()
+                .options(profile.options())
+                .system(systemPrompt)
+                .user(message)
+                .toolCallbacks(listenedTo(listener))
+                .call()
+                .content().trim());
+    }
+
+    /**
+     * Returns true if every parsed expense has a positive amount, a topic and a yyyy-MM-dd date.
+     * An amount missing from the model's answer is read as zero.
+     */
+    static boolean isValid(List<Expense> expenses) {
+        if (expenses == null) {
+            return false;
+        }
+        for (Expense expense : expenses) {
+            if (expense == null || !(expense.getAmount() > 0) || expense.getTopic() == null
+                    || expense.getTopic().isBlank() || expense.getDate() == null) {
+                return false;
+            }
+            try {
+                LocalDate.parse(expense.getDate());
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true for messages that ask about expenses rather than change them.
+     */
+    static boolean isQuestion(String message) {
+        String text = message.toLowerCase(Locale.ROOT).trim();
+        String[] words = text.split("[^a-z]+");
+        if (Arrays.stream(words).anyMatch(WRITE_WORDS::contains)) {
+            return false;
+        }
+        return text.endsWith("?") || words.length > 0 && QUESTION_WORDS.contains(words[0]);
+    }
+
+    /**
+     * Parses the message without the model if it is a simple list of new expenses.
+     */
+    private Optional<List<Expense>> fastPath(String operation, String message) {
+        if (!fastPathEnabled) {
+            return Optional.empty();
+        }
+        Optional<List<Expense>> parsed = fastPathParser.parse(message);
+        Counter.builder("expense.fastpath.requests")
+                .tag("operation", operation)
+                .tag("result", parsed.isPresent() ? "hit" : "miss")
+                .register(meterRegistry)
+                .increment();
+        return parsed;
+    }
+
+    /**
+     * Adds the expenses through the sheets tool and returns a confirmation in the style
+     * of the chat prompt.
+     */
+    private String recordExpenses(List<Expense> expenses) {
+        String result = sheetsUpdateTool.updateExpensesByYear(expenses, List.of());
+        if (result.contains("Error: ")) {
+            throw new IllegalStateException(result);
+        }
+        return expenses.stream()
+                .map(expense -> String.format(Locale.ROOT, "✓ Recorded $%.2f for %s on %s",
+                        expense.getAmount(), expense.getTopic(), expense.getDate()))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static void emit(FluxSink<ChatEvent> sink, String text) {
+        if (!text.isEmpty()) {
+            sink.next(ChatEvent.token(text));
+        }
+    }
+
+    private ToolCallback[] listenedTo(ToolCallListener listener) {
+        return Arrays.stream(toolCallbacks)
+                .map(callback -> new ListenedToolCallback(callback, listener))
+                .toArray(ToolCallback[]::new);
+    }
+
+    /**
+     * Returns the year a read tool was called for, or null.
+     */
+    private Integer yearOf(String toolInput) {
+        try {
+            JsonNode year = objectMapper.readTree(toolInput).get("year");
+            return year != null && year.canConvertToInt() ? year.asInt() : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private interface ToolCallListener {
+        void onToolCall(String tool, String input, ChatEvent.ToolStatus status);
+    }
+
+    /**
+     * Collects what the tools of a chat did: the years they read and whether any wrote.
+     */
+    private class ToolCallRecorder implements ToolCallListener {
+
+        private final Set<Integer> years = ConcurrentHashMap.newKeySet();
+        private volatile boolean wrote;
+
+        @Override
+        public void onToolCall(String tool, String input, ChatEvent.ToolStatus status) {
+            if (status != ChatEvent.ToolStatus.STARTED) {
+                return;
+            }
+            if (WRITE_TOOLS.contains(tool)) {
+                wrote = true;
+            } else {
+                Integer year = yearOf(input);
+                if (year != null) {
+                    years.add(year);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports the start and the outcome of each call of the wrapped tool.
+     */
+    private static class ListenedToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+        private final ToolCallListener listener;
+
+        ListenedToolCallback(ToolCallback delegate, ToolCallListener listener) {
+            this.delegate = delegate;
+            this.listener = listener;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            String name = getToolDefinition().name();
+            listener.onToolCall(name, toolInput, ChatEvent.ToolStatus.STARTED);
+            try {
+                String result = toolContext != null ? delegate.call(toolInput, toolContext) : delegate.call(toolInput);
+                listener.onToolCall(name, toolInput, ChatEvent.ToolStatus.COMPLETED);
+                return result;
+            } catch (RuntimeException e) {
+                listener.onToolCall(name, toolInput, ChatEvent.ToolStatus.FAILED);
+                throw e;
+            }
+        }
+    }
+
 }
@@ -0,0 +1,576 @@
+package org.rkanaje.expense.ai.service;
+
+import org.rkanaje.expense.ai.model.Expense;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Column-oriented, immutable snapshot of the expenses of one year.
+ * Rows are sorted by date and stored as primitive columns: the date as an epoch day,
+ * the amount in cents and the topic as an id into a {@link TopicIndex}. Each topic id
+ * also has a sorted posting list of its rows.
+ * Date filters are answered with binary search, topic filters through the topic index
+ * and the posting lists, and totals are computed without creating {@link Expense} objects.
+ * Writes are applied with {@link #withUpserts(List)}, {@link #withDeletes(List)} and
+ * {@link #withExactDeletes(List)}, which return a new snapshot.
+ */
+public final class ExpenseColumns {
+
+    private final int year;
+    private final int size;
+    private final int[] epochDays;
+    private final long[] amountCents;
+    private final int[] topicIds;
+    private final TopicIndex topicIndex;
+    // Rows of topic id t are postingRows[postingStarts[t] .. postingStarts[t + 1])
+    private final int[] postingStarts;
+    private final int[] postingRows;
+    private final ExpenseRollups rollups;
+
+    private ExpenseColumns(int year, int size, int[] epochDays, long[] amountCents, int[] topicIds,
+                           TopicIndex topicIndex, ExpenseRollups rollups) {
+        this.year = year;
+        this.size = size;
+        this.epochDays = epochDays;
+        this.amountCents = amountCents;
+        this.topicIds = topicIds;
+        this.topicIndex = topicIndex;
+        this.rollups = rollups;
+
+        // Counting sort of the rows by topic id keeps each posting list in row order
+        this.postingStarts = new int[topicIndex.size() + 1];
+        for (int i = 0; i < size; i++) {
+            postingStarts[topicIds[i] + 1]++;
+        }
+        for (int t = 0; t < topicIndex.size(); t++) {
+            postingStarts[t + 1] += postingStarts[t];
+        }
+        this.postingRows = new int[size];
+        int[] next = Arrays.copyOf(postingStarts, topicIndex.size());
+        for (int i = 0; i < size; i++) {
+            postingRows[next[topicIds[i]]++] = i;
+        }
+    }
+
+    /**
+     * Builds the columns from parsed expenses. Expenses without a valid
+     * {@code yyyy-MM-dd} date or topic are skipped.
+     */
+    public static ExpenseColumns of(int year, List<Expense> expenses) {
+        Builder builder = builder(year, expenses.size());
+        for (Expense expense : expenses) {
+            int epochDay = parseEpochDay(expense.getDate());
+            if (epochDay != Integer.MIN_VALUE && expense.getTopic() != null) {
+                builder.add(epochDay, toCents(expense.getAmount()), expense.getTopic());
+            }
+        }
+        return builder.build();
+    }
+
+    public static Builder builder(int year, int expectedSize) {
+        return new Builder(year, expectedSize);
+    }
+
+    public int year() {
+        return year;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TopicIndex topics() {
+        return topicIndex;
+    }
+
+    /**
+     * Returns the materialized totals of the year, which are kept up to date by
+     * {@link #withUpserts(List)} and {@link #withDeletes(List)}.
+     */
+    public ExpenseRollups rollups() {
+        return rollups;
+    }
+
+    /**
+     * Returns the indexes of the rows matching the query, in date order.
+     */
+    public int[] select(ExpenseQuery query) {
+        int from = lowerBound(query.fromEpochDay(year));
+        int to = lowerBound(query.toEpochDay(year) + 1);
+        long cents = query.getAmount() != null ? toCents(query.getAmount()) : Long.MIN_VALUE;
+
+        int[] candidates = query.getTopic() != null ? topicRows(query.getTopic(), from, to) : null;
+        int length = candidates != null ? candidates.length : Math.max(to - from, 0);
+        int[] rows = new int[length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            int row = candidates != null ? candidates[i] : from + i;
+            if (cents == Long.MIN_VALUE || amountCents[row] == cents) {
+                rows[count++] = row;
+            }
+        }
+        return count == length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    public int count(ExpenseQuery query) {
+        if (query.getTopic() != null) {
+            return select(query).length;
+        }
+        int from = lowerBound(query.fromEpochDay(year));
+        int to = lowerBound(query.toEpochDay(year) + 1);
+        if (query.getAmount() == null) {
+            return Math.max(to - from, 0);
+        }
+        long cents = toCents(query.getAmount());
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (amountCents[i] == cents) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total amount in cents of the rows matching the query.
+     */
+    public long sumCents(ExpenseQuery query) {
+        long total = 0;
+        if (query.getTopic() != null || query.getAmount() != null) {
+            for (int row : select(query)) {
+                total += amountCents[row];
+            }
+            return total;
+        }
+        int from = lowerBound(query.fromEpochDay(year));
+        int to = lowerBound(query.toEpochDay(year) + 1);
+        for (int i = from; i < to; i++) {
+            total += amountCents[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the matching rows as expenses. The expenses are created on access.
+     */
+    public List<Expense> find(ExpenseQuery query) {
+        return rows(select(query));
+    }
+
+    /**
+     * Returns all rows as expenses in date order. The expenses are created on access.
+     */
+    public List<Expense> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Expense get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return expense(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns the expenses dated between the given days (inclusive) across several years,
+     * in date order. Each year is already sorted, so the slices are combined with a k-way
+     * merge; rows dated outside their sheet's year still end up in the right place.
+     */
+    public static List<Expense> mergeBetween(Collection<ExpenseColumns> years, LocalDate from, LocalDate to) {
+        Iterator<Expense> iterator = iterate(years, (int) from.toEpochDay(), 0, (int) to.toEpochDay());
+        List<Expense> merged = new ArrayList<>();
+        iterator.forEachRemaining(merged::add);
+        return merged;
+    }
+
+    /**
+     * Iterates the expenses dated between the given days (inclusive) across several years
+     * in date order, creating each expense only when it is returned.
+     *
+     * @param years   The snapshots to merge
+     * @param fromDay The first epoch day to return
+     * @param skip    Number of rows dated {@code fromDay} to skip, to resume after a cursor
+     * @param toDay   The last epoch day to return
+     */
+    public static Iterator<Expense> iterate(Collection<ExpenseColumns> years, int fromDay, int skip, int toDay) {
+        // One cursor per year: {year position, next row, end row}
+        List<ExpenseColumns> sources = new ArrayList<>(years);
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(sources.size(), 1),
+                (a, b) -> Integer.compare(sources.get(a[0]).epochDays[a[1]], sources.get(b[0]).epochDays[b[1]]));
+        for (int i = 0; i < sources.size(); i++) {
+            ExpenseColumns columns = sources.get(i);
+            int start = columns.lowerBound(fromDay);
+            int end = toDay == Integer.MAX_VALUE ? columns.size : columns.lowerBound(toDay + 1);
+            if (start < end) {
+                cursors.add(new int[]{i, start, end});
+            }
+        }
+
+        Iterator<Expense> iterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public Expense next() {
+                int[] cursor = cursors.poll();
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                Expense expense = sources.get(cursor[0]).expense(cursor[1]++);
+                if (cursor[1] < cursor[2]) {
+                    cursors.add(cursor);
+                }
+                return expense;
+            }
+        };
+        // Rows of the first day sort first, so skipping them never reaches a later day
+        for (int skipped = 0; skipped < skip && !cursors.isEmpty(); skipped++) {
+            int[] cursor = cursors.peek();
+            if (sources.get(cursor[0]).epochDays[cursor[1]] != fromDay) {
+                break;
+            }
+            iterator.next();
+        }
+        return iterator;
+    }
+
+    public Expense expense(int row) {
+        return new Expense(amountCents[row] / 100.0, topicIndex.topic(topicIds[row]),
+                LocalDate.ofEpochDay(epochDays[row]).toString());
+    }
+
+    /**
+     * Returns a snapshot in which expenses matching an existing row by date and topic
+     * (ignoring case) replace that row, and all other expenses are added. When several rows
+     * share the date and topic, only the last one is replaced, as in the year sheet.
+     */
+    public ExpenseColumns withUpserts(List<Expense> expenses) {
+        List<String> newTopics = new ArrayList<>();
+        for (Expense expense : expenses) {
+            if (expense.getTopic() != null) {
+                newTopics.add(expense.getTopic());
+            }
+        }
+        TopicIndex index = topicIndex.plus(newTopics);
+
+        long[] cents = amountCents.clone();
+        int[] topics = topicIds.clone();
+        ExpenseRollups patched = rollups.copy(index.size());
+        Builder added = new Builder(year, 0, index);
+        for (Expense expense : expenses) {
+            int epochDay = parseEpochDay(expense.getDate());
+            if (epochDay == Integer.MIN_VALUE || expense.getTopic() == null) {
+                continue;
+            }
+            int topicId = index.idOf(expense.getTopic());
+            int[] matching = rowsOnDay(epochDay, index.idsIgnoringCase(expense.getTopic()), topics);
+            if (matching.length > 0) {
+                // Like the stores, only the last row of duplicates is updated
+                int row = matching[matching.length - 1];
+                patched.remove(epochDay, topics[row], cents[row]);
+                cents[row] = toCents(expense.getAmount());
+                topics[row] = topicId;
+                patched.add(epochDay, topicId, cents[row]);
+            } else {
+                added.add(epochDay, toCents(expense.getAmount()), expense.getTopic());
+                patched.add(epochDay, topicId, toCents(expense.getAmount()));
+            }
+        }
+        if (added.size == 0) {
+            return new ExpenseColumns(year, size, epochDays, cents, topics, index, patched);
+        }
+
+        // Merge the sorted new rows after existing rows of the same day
+        ExpenseColumns additions = added.build();
+        int total = size + additions.size;
+        int[] mergedDays = new int[total];
+        long[] mergedCents = new long[total];
+        int[] mergedTopics = new int[total];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < total; k++) {
+            if (j >= additions.size || (i < size && epochDays[i] <= additions.epochDays[j])) {
+                mergedDays[k] = epochDays[i];
+                mergedCents[k] = cents[i];
+                mergedTopics[k] = topics[i];
+                i++;
+            } else {
+                mergedDays[k] = additions.epochDays[j];
+                mergedCents[k] = additions.amountCents[j];
+                mergedTopics[k] = additions.topicIds[j];
+                j++;
+            }
+        }
+        return new ExpenseColumns(year, total, mergedDays, mergedCents, mergedTopics, index, patched);
+    }
+
+    /**
+     * Returns a snapshot without the rows matching the given expenses by date and topic
+     * (ignoring case).
+     */
+    public ExpenseColumns withDeletes(List<Expense> expenses) {
+        return without(expenses, false);
+    }
+
+    /**
+     * Returns a snapshot without one row per given expense, matching its date, topic
+     * (ignoring case) and amount. Rows with the same date and topic but another amount are kept.
+     */
+    public ExpenseColumns withExactDeletes(List<Expense> expenses) {
+        return without(expenses, true);
+    }
+
+    private ExpenseColumns without(List<Expense> expenses, boolean exact) {
+        boolean[] deleted = new boolean[size];
+        int deletedCount = 0;
+        for (Expense expense : expenses) {
+            int epochDay = parseEpochDay(expense.getDate());
+            if (epochDay == Integer.MIN_VALUE || expense.getTopic() == null) {
+                continue;
+            }
+            long cents = toCents(expense.getAmount());
+            for (int row : rowsOnDay(epochDay, topicIndex.idsIgnoringCase(expense.getTopic()), topicIds)) {
+                if (deleted[row] || (exact && amountCents[row] != cents)) {
+                    continue;
+                }
+                deleted[row] = true;
+                deletedCount++;
+                if (exact) {
+                    break;
+                }
+            }
+        }
+        if (deletedCount == 0) {
+            return this;
+        }
+
+        ExpenseRollups patched = rollups.copy(topicIndex.size());
+
+        int remaining = size - deletedCount;
+        int[] days = new int[remaining];
+        long[] cents = new long[remaining];
+        int[] topics = new int[remaining];
+        int k = 0;
+        for (int i = 0; i < size; i++) {
+            if (!deleted[i]) {
+                days[k] = epochDays[i];
+                cents[k] = amountCents[i];
+                topics[k] = topicIds[i];
+                k++;
+            } else {
+                patched.remove(epochDays[i], topicIds[i], amountCents[i]);
+            }
+        }
+        return new ExpenseColumns(year, remaining, days, cents, topics, topicIndex, patched);
+    }
+
+    private List<Expense> rows(int[] rows) {
+        return new AbstractList<>() {
+            @Override
+            public Expense get(int index) {
+                return expense(rows[index]);
+            }
+
+            @Override
+            public int size() {
+                return rows.length;
+            }
+        };
+    }
+
+    /**
+     * Returns the rows on the given day whose topic id is one of the given ids.
+     */
+    private int[] rowsOnDay(int epochDay, int[] ids, int[] topics) {
+        if (ids.length == 0) {
+            return ids;
+        }
+        int from = lowerBound(epochDay);
+        int to = lowerBound(epochDay + 1);
+        int[] rows = new int[to - from];
+        int count = 0;
+        for (int row = from; row < to; row++) {
+            for (int id : ids) {
+                if (topics[row] == id) {
+                    rows[count++] = row;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Returns the rows in {@code [from, to)} whose topic contains the text, in row order,
+     * by merging the posting lists of the matching topics.
+     */
+    private int[] topicRows(String text, int from, int to) {
+        int[] ids = topicIndex.idsContaining(text);
+        int[] rows = new int[0];
+        int count = 0;
+        for (int id : ids) {
+            int start = postingStarts[id];
+            int end = postingStarts[id + 1];
+            int first = lowerBound(postingRows, start, end, from);
+            int last = lowerBound(postingRows, first, end, to);
+            if (first == last) {
+                continue;
+            }
+            if (count + last - first > rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(rows.length * 2, count + last - first));
+            }
+            System.arraycopy(postingRows, first, rows, count, last - first);
+            count += last - first;
+        }
+        rows = Arrays.copyOf(rows, count);
+        if (ids.length > 1) {
+            Arrays.sort(rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the index of the first row on or after the given day.
+     */
+    private int lowerBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(int[] values, int low, int high, int value) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Parses a {@code yyyy-MM-dd} date into an epoch day without a formatter,
+     * returning {@link Integer#MIN_VALUE} if the text is not a valid date.
+     */
+    static int parseEpochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return Integer.MIN_VALUE;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return Integer.MIN_VALUE;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (RuntimeException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Collects rows in any order and sorts them by date on {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final int year;
+        private int size;
+        private int[] epochDays;
+        private long[] amountCents;
+        private String[] topics;
+        private final TopicIndex baseIndex;
+
+        private Builder(int year, int expectedSize) {
+            this(year, expectedSize, TopicIndex.EMPTY);
+        }
+
+        private Builder(int year, int expectedSize, TopicIndex baseIndex) {
+            this.year = year;
+            this.baseIndex = baseIndex;
+            int capacity = Math.max(expectedSize, 16);
+            this.epochDays = new int[capacity];
+            this.amountCents = new long[capacity];
+            this.topics = new String[capacity];
+        }
+
+        public Builder add(int epochDay, long cents, String topic) {
+            if (size == epochDays.length) {
+                int capacity = size * 2;
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                amountCents = Arrays.copyOf(amountCents, capacity);
+                topics = Arrays.copyOf(topics, capacity);
+            }
+            epochDays[size] = epochDay;
+            amountCents[size] = cents;
+            topics[size] = topic;
+            size++;
+            return this;
+        }
+
+        public ExpenseColumns build() {
+            TopicIndex index = baseIndex.plus(Arrays.asList(topics).subList(0, size));
+
+            // Sort row positions by date, keeping the insertion order within a day
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) epochDays[i] << 32) | i;
+            }
+            Arrays.sort(order);
+
+            int[] sortedDays = new int[size];
+            long[] sortedCents = new long[size];
+            int[] sortedTopics = new int[size];
+            for (int i = 0; i < size; i++) {
+                int row = (int) order[i];
+                sortedDays[i] = epochDays[row];
+                sortedCents[i] = amountCents[row];
+                sortedTopics[i] = index.idOf(topics[row]);
+            }
+            ExpenseRollups rollups = ExpenseRollups.of(year, size, sortedDays, sortedCents, sortedTopics, index.size());
+            return new ExpenseColumns(year, size, sortedDays, sortedCents, sortedTopics, index, rollups);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.rkanaje.expense.ai.service;
+
+import org.rkanaje.expense.ai.model.Expense;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a date-ordered list of expenses: the day of the last returned expense and
+ * how many expenses of that day were returned. Resuming from a cursor starts with a
+ * binary search for the day instead of skipping all earlier rows, and rows added on
+ * other days do not shift it.
+ */
+public final class ExpenseCursor {
+
+    public static final ExpenseCursor START = new ExpenseCursor(Integer.MIN_VALUE, 0);
+
+    private final int epochDay;
+    private final int skip;
+
+    private ExpenseCursor(int epochDay, int skip) {
+        this.epochDay = epochDay;
+        this.skip = skip;
+    }
+
+    /**
+     * Decodes a cursor returned by {@link #encode()}, or returns {@link #START} for null.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static ExpenseCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return START;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            int epochDay = Integer.parseInt(decoded.substring(0, separator));
+            int skip = Integer.parseInt(decoded.substring(separator + 1));
+            if (skip < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new ExpenseCursor(epochDay, skip);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    public String encode() {
+        String value = epochDay + ":" + skip;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the cursor positioned after the given expense, which must follow this position.
+     */
+    public ExpenseCursor advance(Expense expense) {
+        int day = ExpenseColumns.parseEpochDay(expense.getDate());
+        return day == epochDay ? new ExpenseCursor(day, skip + 1) : new ExpenseCursor(day, 1);
+    }
+
+    int epochDay() {
+        return epochDay;
+    }
+
+    int skip() {
+        return skip;
+    }
+}
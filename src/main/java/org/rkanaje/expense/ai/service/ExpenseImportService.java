@@ -0,0 +1,292 @@
+package org.rkanaje.expense.ai.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.model.ImportResult;
+import org.rkanaje.expense.ai.repository.UpsertResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Imports expenses from CSV without going through the LLM.
+ * The CSV is parsed as a stream and rows are buffered per year; a buffer is written with
+ * one {@link ExpenseService#addOrUpdateExpenses(int, List)} call once the buffered rows
+ * reach the chunk size, so memory stays bounded by the chunk size regardless of file size.
+ * <p>
+ * The first record is a header naming the {@code date}, {@code amount} and {@code topic}
+ * columns ({@code description} is accepted for the topic), in any order and case.
+ * Dates are normalized to {@code yyyy-MM-dd} and amounts may carry currency symbols and
+ * thousands separators. Negative amounts (refunds and credits) are rejected rather than
+ * recorded as expenses.
+ * Rows with the same date and topic (ignoring case) are summed, since an expense is
+ * identified by its date and topic. A chunk adds its amounts to the expenses already
+ * recorded (read-modify-add), so rows of one expense that land in different chunks are
+ * summed exactly whatever the chunk size. The same applies to expenses recorded before
+ * the import: importing a file twice records its amounts twice.
+ */
+@Slf4j
+@Service
+public class ExpenseImportService {
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    private static final int MAX_TOPIC_LENGTH = 255;
+    private static final Pattern AMOUNT_NOISE = Pattern.compile("[\\s,$€£¥]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ExpenseService expenseService;
+    private final int chunkSize;
+
+    public ExpenseImportService(ExpenseService expenseService,
+                                @Value("${expense.import.chunk-size:5000}") int chunkSize) {
+        this.expenseService = expenseService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports the CSV read from the given reader.
+     *
+     * @param csv        The CSV content
+     * @param dateFormat Pattern of the date column, or null for {@code yyyy-MM-dd}
+     * @param progress   Receives a report after every written chunk
+     * @return The final report
+     */
+    public ImportResult importCsv(Reader csv, String dateFormat, Consumer<ImportResult> progress) throws IOException {
+        DateTimeFormatter dateFormatter = dateFormat != null
+                ? DateTimeFormatter.ofPattern(dateFormat, Locale.ROOT)
+                : DateTimeFormatter.ISO_LOCAL_DATE;
+        Run run = new Run(progress);
+
+        CSVFormat format = CSVFormat.DEFAULT.withIgnoreEmptyLines(true).withIgnoreSurroundingSpaces(true);
+        try (CSVParser parser = new CSVParser(csv, format)) {
+            Iterator<CSVRecord> records = parser.iterator();
+            if (!records.hasNext()) {
+                throw new IllegalArgumentException("The CSV is empty");
+            }
+            int[] columns = headerColumns(records.next());
+
+            try {
+                while (records.hasNext()) {
+                    CSVRecord record = records.next();
+                    run.rowsRead++;
+                    Expense expense = parseRow(record, columns, dateFormatter, run, parser.getCurrentLineNumber());
+                    if (expense != null) {
+                        run.buffer(expense);
+                    }
+                }
+                run.flushAll();
+            } catch (RuntimeException e) {
+                // Chunks written so far stay written; report how far the import got
+                log.error("Import failed after {} row(s): {}", run.rowsRead, e.getMessage(), e);
+                run.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+        }
+
+        ImportResult result = run.report(true);
+        log.info("Imported {} expense(s) from {} row(s), {} rejected", result.getExpensesWritten(),
+                result.getRowsRead(), result.getRowsRejected());
+        return result;
+    }
+
+    private static int[] headerColumns(CSVRecord header) {
+        int[] columns = {-1, -1, -1}; // date, amount, topic
+        int description = -1;
+        for (int i = 0; i < header.size(); i++) {
+            switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "date" -> columns[0] = i;
+                case "amount" -> columns[1] = i;
+                case "topic" -> columns[2] = i;
+                case "description" -> description = i;
+                default -> { }
+            }
+        }
+        if (columns[2] < 0) {
+            columns[2] = description;
+        }
+        if (columns[0] < 0 || columns[1] < 0 || columns[2] < 0) {
+            throw new IllegalArgumentException("The CSV header must name date, amount and topic columns, got: " + header);
+        }
+        return columns;
+    }
+
+    private Expense parseRow(CSVRecord record, int[] columns, DateTimeFormatter dateFormatter, Run run, long line) {
+        if (record.size() <= Math.max(columns[0], Math.max(columns[1], columns[2]))) {
+            run.reject(line, "Missing columns");
+            return null;
+        }
+
+        LocalDate date;
+        try {
+            date = LocalDate.parse(record.get(columns[0]).trim(), dateFormatter);
+        } catch (DateTimeParseException e) {
+            run.reject(line, "Invalid date: " + record.get(columns[0]));
+            return null;
+        }
+        if (date.getYear() < 1000 || date.getYear() > 9999) {
+            run.reject(line, "Date out of range: " + date);
+            return null;
+        }
+
+        BigDecimal amount;
+        String rawAmount = record.get(columns[1]).trim();
+        try {
+            String cleaned = AMOUNT_NOISE.matcher(rawAmount).replaceAll("");
+            if (cleaned.startsWith("(") && cleaned.endsWith(")")) {
+                cleaned = "-" + cleaned.substring(1, cleaned.length() - 1); // Accounting notation for negatives
+            }
+            amount = new BigDecimal(cleaned).setScale(2, RoundingMode.HALF_UP);
+        } catch (NumberFormatException e) {
+            run.reject(line, "Invalid amount: " + rawAmount);
+            return null;
+        }
+        if (amount.signum() == 0) {
+            run.reject(line, "Zero amount");
+            return null;
+        }
+        if (amount.signum() < 0) {
+            run.reject(line, "Negative amount (refund or credit): " + rawAmount);
+            return null;
+        }
+
+        String topic = WHITESPACE.matcher(record.get(columns[2]).trim()).replaceAll(" ");
+        if (topic.isEmpty()) {
+            run.reject(line, "Missing topic");
+            return null;
+        }
+        if (topic.length() > MAX_TOPIC_LENGTH) {
+            topic = topic.substring(0, MAX_TOPIC_LENGTH);
+        }
+        return new Expense(amount.doubleValue(), topic, date.toString());
+    }
+
+    private static double sum(double a, double b) {
+        return BigDecimal.valueOf(a).add(BigDecimal.valueOf(b)).doubleValue();
+    }
+
+    /**
+     * State of one import.
+     */
+    private final class Run {
+
+        private final Consumer<ImportResult> progress;
+        // Per year, expenses keyed by date and lower-cased topic
+        private final Map<Integer, Map<String, Expense>> buffers = new HashMap<>();
+        private final TreeSet<Integer> years = new TreeSet<>();
+        private final List<ImportResult.RejectedRow> rejected = new ArrayList<>();
+        private int buffered;
+        private long rowsRead;
+        private long rowsRejected;
+        private long updated;
+        private long added;
+        private String error;
+
+        private Run(Consumer<ImportResult> progress) {
+            this.progress = progress;
+        }
+
+        void buffer(Expense expense) {
+            int year = Integer.parseInt(expense.getDate().substring(0, 4));
+            Map<String, Expense> buffer = buffers.computeIfAbsent(year, y -> new LinkedHashMap<>());
+            String key = expense.getDate() + "|" + expense.getTopic().toLowerCase(Locale.ROOT);
+            Expense existing = buffer.get(key);
+            if (existing != null) {
+                existing.setAmount(sum(existing.getAmount(), expense.getAmount()));
+                return;
+            }
+            buffer.put(key, expense);
+            if (++buffered >= chunkSize) {
+                // Write the largest buffer; most statements are sorted, so that is usually the only one
+                buffers.entrySet().stream()
+                        .max(Comparator.comparingInt(entry -> entry.getValue().size()))
+                        .ifPresent(entry -> flush(entry.getKey()));
+            }
+        }
+
+        void flushAll() {
+            for (Integer year : new ArrayList<>(buffers.keySet())) {
+                flush(year);
+            }
+        }
+
+        void reject(long line, String reason) {
+            rowsRejected++;
+            if (rejected.size() < MAX_REPORTED_REJECTIONS) {
+                rejected.add(new ImportResult.RejectedRow(line, reason));
+            }
+        }
+
+        private void flush(int year) {
+            Map<String, Expense> buffer = buffers.remove(year);
+            if (buffer == null || buffer.isEmpty()) {
+                return;
+            }
+            buffered -= buffer.size();
+            List<Expense> chunk = addRecorded(year, buffer.values());
+            UpsertResult result = expenseService.addOrUpdateExpenses(year, chunk);
+            updated += result.getUpdated();
+            added += result.getAdded();
+            years.add(year);
+            log.info("Imported chunk of {} expense(s) for {} ({} rows read so far)", chunk.size(), year, rowsRead);
+            progress.accept(report(false));
+        }
+
+        /**
+         * Adds the recorded amount of each expense of the chunk that is already recorded,
+         * whether by an earlier chunk or before the import.
+         */
+        private List<Expense> addRecorded(int year, Collection<Expense> chunk) {
+            ExpenseColumns recorded = expenseService.getYear(year);
+            List<Expense> expenses = new ArrayList<>(chunk.size());
+            for (Expense expense : chunk) {
+                LocalDate date = LocalDate.parse(expense.getDate());
+                List<Expense> sameDay = recorded.find(ExpenseQuery.builder()
+                        .month(date.getMonthValue()).day(date.getDayOfMonth()).build());
+                // Of duplicate rows, the sheet updates the last one
+                for (int i = sameDay.size() - 1; i >= 0; i--) {
+                    if (sameDay.get(i).getTopic().equalsIgnoreCase(expense.getTopic())) {
+                        expense.setAmount(sum(expense.getAmount(), sameDay.get(i).getAmount()));
+                        break;
+                    }
+                }
+                expenses.add(expense);
+            }
+            return expenses;
+        }
+
+        ImportResult report(boolean done) {
+            return ImportResult.builder()
+                    .done(done)
+                    .rowsRead(rowsRead)
+                    .rowsRejected(rowsRejected)
+                    .expensesWritten(updated + added)
+                    .updated(updated)
+                    .added(added)
+                    .years(done ? new ArrayList<>(years) : null)
+                    .rejected(done ? rejected : null)
+                    .error(error)
+                    .build();
+        }
+    }
+}
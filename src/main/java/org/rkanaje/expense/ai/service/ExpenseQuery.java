@@ -0,0 +1,62 @@
+package org.rkanaje.expense.ai.service;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Filter for the expenses of a year. Every criterion is optional;
+ * a day is only applied together with a month.
+ */
+@Value
+@Builder
+public class ExpenseQuery {
+
+    public static final ExpenseQuery ALL = ExpenseQuery.builder().build();
+
+    Integer month;
+    Integer day;
+    String topic;
+    Double amount;
+
+    /**
+     * Returns true if the query has no criteria, so it matches every expense of the year.
+     */
+    public boolean isEmpty() {
+        return month == null && day == null && (topic == null || topic.isBlank()) && amount == null;
+    }
+
+    /**
+     * Returns the first epoch day of the year matched by this query.
+     */
+    int fromEpochDay(int year) {
+        try {
+            if (month == null) {
+                return Integer.MIN_VALUE; // The whole sheet, including rows dated in another year
+            }
+            return (int) LocalDate.of(year, month, day != null ? day : 1).toEpochDay();
+        } catch (DateTimeException e) {
+            return Integer.MAX_VALUE - 1; // Matches nothing
+        }
+    }
+
+    /**
+     * Returns the last epoch day of the year matched by this query.
+     */
+    int toEpochDay(int year) {
+        try {
+            if (month == null) {
+                return Integer.MAX_VALUE - 1;
+            }
+            if (day == null) {
+                return (int) YearMonth.of(year, month).atEndOfMonth().toEpochDay();
+            }
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return Integer.MIN_VALUE + 1; // Matches nothing
+        }
+    }
+}
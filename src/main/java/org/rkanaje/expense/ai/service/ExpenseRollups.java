@@ -0,0 +1,146 @@
+package org.rkanaje.expense.ai.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Materialized totals and counts of the expenses of one year: per day, per month,
+ * per topic id and per topic id and month. Amounts are in cents.
+ * Rollups are computed once when a year is loaded and then maintained with the
+ * deltas of each write, so reading a total never scans the rows.
+ * Rows dated outside the year are not counted.
+ */
+public final class ExpenseRollups {
+
+    private final int firstEpochDay;
+    private final long[] dayCents;
+    private final int[] dayCounts;
+    private final long[] monthCents = new long[12];
+    private final int[] monthCounts = new int[12];
+    private long[] topicCents;
+    private int[] topicCounts;
+    // Indexed by topicId * 12 + month - 1
+    private long[] topicMonthCents;
+    private int[] topicMonthCounts;
+    private long totalCents;
+    private int totalCount;
+
+    private ExpenseRollups(int year, int topicCount) {
+        this.firstEpochDay = (int) LocalDate.of(year, 1, 1).toEpochDay();
+        int days = LocalDate.of(year, 1, 1).lengthOfYear();
+        this.dayCents = new long[days];
+        this.dayCounts = new int[days];
+        this.topicCents = new long[topicCount];
+        this.topicCounts = new int[topicCount];
+        this.topicMonthCents = new long[topicCount * 12];
+        this.topicMonthCounts = new int[topicCount * 12];
+    }
+
+    private ExpenseRollups(ExpenseRollups other, int topicCount) {
+        this.firstEpochDay = other.firstEpochDay;
+        this.dayCents = other.dayCents.clone();
+        this.dayCounts = other.dayCounts.clone();
+        System.arraycopy(other.monthCents, 0, monthCents, 0, 12);
+        System.arraycopy(other.monthCounts, 0, monthCounts, 0, 12);
+        this.topicCents = Arrays.copyOf(other.topicCents, topicCount);
+        this.topicCounts = Arrays.copyOf(other.topicCounts, topicCount);
+        this.topicMonthCents = Arrays.copyOf(other.topicMonthCents, topicCount * 12);
+        this.topicMonthCounts = Arrays.copyOf(other.topicMonthCounts, topicCount * 12);
+        this.totalCents = other.totalCents;
+        this.totalCount = other.totalCount;
+    }
+
+    /**
+     * Computes the rollups of the given rows.
+     */
+    static ExpenseRollups of(int year, int size, int[] epochDays, long[] amountCents, int[] topicIds, int topicCount) {
+        ExpenseRollups rollups = new ExpenseRollups(year, topicCount);
+        for (int i = 0; i < size; i++) {
+            rollups.add(epochDays[i], topicIds[i], amountCents[i]);
+        }
+        return rollups;
+    }
+
+    /**
+     * Returns a copy to apply deltas to, with room for the given number of topics.
+     * The copy must not be changed once it is published with a snapshot.
+     */
+    ExpenseRollups copy(int topicCount) {
+        return new ExpenseRollups(this, topicCount);
+    }
+
+    void add(int epochDay, int topicId, long cents) {
+        apply(epochDay, topicId, cents, 1);
+    }
+
+    void remove(int epochDay, int topicId, long cents) {
+        apply(epochDay, topicId, -cents, -1);
+    }
+
+    public long totalCents() {
+        return totalCents;
+    }
+
+    public int count() {
+        return totalCount;
+    }
+
+    public long dayCents(LocalDate date) {
+        int day = dayOfYear((int) date.toEpochDay());
+        return day >= 0 ? dayCents[day] : 0;
+    }
+
+    public int dayCount(LocalDate date) {
+        int day = dayOfYear((int) date.toEpochDay());
+        return day >= 0 ? dayCounts[day] : 0;
+    }
+
+    public long monthCents(int month) {
+        return monthCents[month - 1];
+    }
+
+    public int monthCount(int month) {
+        return monthCounts[month - 1];
+    }
+
+    public long topicCents(int topicId) {
+        return topicId < topicCents.length ? topicCents[topicId] : 0;
+    }
+
+    public int topicCount(int topicId) {
+        return topicId < topicCounts.length ? topicCounts[topicId] : 0;
+    }
+
+    public long topicMonthCents(int topicId, int month) {
+        int slot = topicId * 12 + month - 1;
+        return slot < topicMonthCents.length ? topicMonthCents[slot] : 0;
+    }
+
+    public int topicMonthCount(int topicId, int month) {
+        int slot = topicId * 12 + month - 1;
+        return slot < topicMonthCounts.length ? topicMonthCounts[slot] : 0;
+    }
+
+    private void apply(int epochDay, int topicId, long cents, int count) {
+        int day = dayOfYear(epochDay);
+        if (day < 0) {
+            return;
+        }
+        int month = LocalDate.ofEpochDay(epochDay).getMonthValue();
+        dayCents[day] += cents;
+        dayCounts[day] += count;
+        monthCents[month - 1] += cents;
+        monthCounts[month - 1] += count;
+        topicCents[topicId] += cents;
+        topicCounts[topicId] += count;
+        topicMonthCents[topicId * 12 + month - 1] += cents;
+        topicMonthCounts[topicId * 12 + month - 1] += count;
+        totalCents += cents;
+        totalCount += count;
+    }
+
+    private int dayOfYear(int epochDay) {
+        int day = epochDay - firstEpochDay;
+        return day >= 0 && day < dayCents.length ? day : -1;
+    }
+}
@@ -1,9 +1,86 @@
 package org.rkanaje.expense.ai.service;
 
 import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.model.ExpenseSummary;
+import org.rkanaje.expense.ai.repository.UpsertResult;
 
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
 
 public interface ExpenseService {
     List<Expense> getExpensesByYear(int year);
+
+    List<Expense> findExpenses(int year, ExpenseQuery query);
+
+    /**
+     * Returns the expenses dated between the given dates (inclusive) across all years they span, sorted by date.
+     */
+    List<Expense> getExpensesBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Iterates the expenses of a year in date order, starting after the cursor.
+     * Expenses are created one at a time as the iterator advances.
+     */
+    Iterator<Expense> iterateExpenses(int year, ExpenseCursor after);
+
+    /**
+     * Iterates the expenses dated between the given dates (inclusive) in date order, starting after the cursor.
+     */
+    Iterator<Expense> iterateExpensesBetween(LocalDate from, LocalDate to, ExpenseCursor after);
+
+    /**
+     * Iterates the expenses dated between the given dates (inclusive) one year sheet at a time,
+     * loading each year only when the previous one is exhausted. Expenses are ordered by
+     * year sheet, then date. Like the other reads, a year that cannot be read fails with an
+     * {@link java.io.UncheckedIOException}, here when the iteration reaches it.
+     */
+    Iterator<Expense> iterateExpensesByYear(LocalDate from, LocalDate to);
+
+    /**
+     * Returns the cached expenses of a year, loading them on a miss.
+     *
+     * @throws java.io.UncheckedIOException if the year cannot be read from the store
+     */
+    ExpenseColumns getYear(int year);
+
+    /**
+     * Returns the totals of a year from its materialized rollups.
+     *
+     * @param year  The year to summarize
+     * @param month The month to narrow to (1-12), or null for the whole year
+     * @param topic Text the topic must contain (case-insensitive), or null for all topics
+     */
+    ExpenseSummary getSummary(int year, Integer month, String topic);
+
+    UpsertResult addOrUpdateExpenses(int year, List<Expense> expenses);
+
+    int deleteExpenses(int year, List<Expense> expenses);
+
+    /**
+     * Deletes the expenses of a year matching the query, resolving them from the cached
+     * year instead of a separate read by the caller.
+     *
+     * @return The deleted expenses
+     * @throws IllegalArgumentException if the query has no criteria; use {@link #deleteAllExpenses(int)}
+     */
+    List<Expense> deleteExpensesMatching(int year, ExpenseQuery query);
+
+    /**
+     * Deletes every expense of a year.
+     *
+     * @return The deleted expenses
+     */
+    List<Expense> deleteAllExpenses(int year);
+
+    /**
+     * Applies the change to the expenses of a year matching the query. An expense whose
+     * date or topic changes is added under its new key, possibly in another year, before
+     * its old row is deleted. A change that would give several expenses the same date and
+     * topic, or move one onto an existing expense, is rejected before anything is written.
+     *
+     * @return The expenses as they are after the change
+     * @throws IllegalArgumentException if the query has no criteria or the change would merge expenses
+     */
+    List<Expense> updateExpensesMatching(int year, ExpenseQuery query, ExpenseChange change);
 }
@@ -1,83 +1,328 @@
 package org.rkanaje.expense.ai.service;
 
-import com.google.api.services.sheets.v4.Sheets;
-import com.google.api.services.sheets.v4.model.ValueRange;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.model.ExpenseSummary;
+import org.rkanaje.expense.ai.repository.ExpenseRepository;
+import org.rkanaje.expense.ai.repository.UpsertResult;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ExpenseServiceImpl implements ExpenseService {
 
-    private static final String SHEET_PREFIX = "Expense_";
-    private static final String RANGE = "A:C"; // Columns: Date, Amount, Description
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-    private final Sheets sheetsService;
-    private final String spreadsheetId;
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseYearCache yearCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<Expense> getExpensesByYear(int year) {
-        String sheetName = SHEET_PREFIX + year;
-        List<Expense> expenses = new ArrayList<>();
+        return getYear(year).asList();
+    }
 
-        try {
-            // First, check if the sheet exists
-            boolean sheetExists = sheetsService.spreadsheets().get(spreadsheetId)
-                    .execute()
-                    .getSheets()
-                    .stream()
-                    .anyMatch(sheet -> sheet.getProperties().getTitle().equals(sheetName));
-
-            if (!sheetExists) {
-                log.info("Sheet '{}' does not exist, returning empty list", sheetName);
-                return expenses;
+    @Override
+    public List<Expense> findExpenses(int year, ExpenseQuery query) {
+        return getYear(year).find(query);
+    }
+
+    @Override
+    public List<Expense> getExpensesBetween(LocalDate from, LocalDate to) {
+        return ExpenseColumns.mergeBetween(getYears(from, to), from, to);
+    }
+
+    @Override
+    public Iterator<Expense> iterateExpenses(int year, ExpenseCursor after) {
+        return ExpenseColumns.iterate(List.of(getYear(year)), after.epochDay(), after.skip(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<Expense> iterateExpensesBetween(LocalDate from, LocalDate to, ExpenseCursor after) {
+        int fromDay = (int) from.toEpochDay();
+        // A cursor before the range start resumes at the start
+        int skip = after.epochDay() >= fromDay ? after.skip() : 0;
+        return ExpenseColumns.iterate(getYears(from, to), Math.max(fromDay, after.epochDay()), skip,
+                (int) to.toEpochDay());
+    }
+
+    @Override
+    public Iterator<Expense> iterateExpensesByYear(LocalDate from, LocalDate to) {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        return new Iterator<>() {
+            private int nextYear = from.getYear();
+            private Iterator<Expense> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && nextYear <= to.getYear()) {
+                    current = ExpenseColumns.iterate(List.of(loadYear(nextYear++)), fromDay, 0, toDay);
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Expense next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
             }
+        };
+    }
+
+    private Collection<ExpenseColumns> getYears(LocalDate from, LocalDate to) {
+        List<Integer> years = new ArrayList<>();
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            years.add(year);
+        }
+        // A failed read is not cached and propagates, so an outage is not reported as no expenses
+        return yearCache.getAll(years, expenseRepository::findColumnsByYears).values();
+    }
 
-            // Get all values from the sheet
-            ValueRange response = sheetsService.spreadsheets().values()
-                    .get(spreadsheetId, sheetName + "!" + RANGE)
-                    .execute();
+    @Override
+    public ExpenseColumns getYear(int year) {
+        return loadYear(year);
+    }
 
-            List<List<Object>> values = response.getValues();
-            if (values == null || values.isEmpty()) {
-                log.info("No data found in sheet: {}", sheetName);
-                return expenses;
+    @Override
+    public ExpenseSummary getSummary(int year, Integer month, String topic) {
+        ExpenseColumns columns = getYear(year);
+        ExpenseRollups rollups = columns.rollups();
+        TopicIndex topics = columns.topics();
+        int[] topicIds = topic != null ? topics.idsContaining(topic) : null;
+
+        long totalCents = 0;
+        int count = 0;
+        // Accumulated as {cents, count} and converted once so amounts do not drift
+        Map<String, long[]> byTopic = new LinkedHashMap<>();
+        Map<String, String> topicNames = new HashMap<>();
+        for (int id = 0; id < topics.size(); id++) {
+            if (topicIds != null && Arrays.binarySearch(topicIds, id) < 0) {
+                continue;
+            }
+            long cents = month != null ? rollups.topicMonthCents(id, month) : rollups.topicCents(id);
+            int topicCount = month != null ? rollups.topicMonthCount(id, month) : rollups.topicCount(id);
+            if (topicCount == 0) {
+                continue;
             }
+            totalCents += cents;
+            count += topicCount;
+            // Topics differing only in case are reported together under the first spelling
+            topicNames.putIfAbsent(topics.normalizedTopic(id), topics.topic(id));
+            accumulate(byTopic, topicNames.get(topics.normalizedTopic(id)), cents, topicCount);
+        }
 
-            // Skip header row and process each row as an expense
-            for (int i = 1; i < values.size(); i++) {
-                List<Object> row = values.get(i);
-                if (row.size() >= 3) { // Ensure we have all required columns
-                    try {
-                        Expense expense = Expense.builder()
-                                .date((String) row.get(0))
-                                .amount(Double.parseDouble(row.get(1).toString()))
-                                .topic((String) row.get(2))
-                                .build();
-                        expenses.add(expense);
-                    } catch (Exception e) {
-                        log.warn("Error parsing expense row {}: {}", i, row, e);
+        Map<String, long[]> byMonth = null;
+        Map<String, long[]> byDay = new LinkedHashMap<>();
+        if (month == null) {
+            byMonth = new LinkedHashMap<>();
+            for (int m = 1; m <= 12; m++) {
+                long cents = 0;
+                int monthCount = 0;
+                if (topicIds == null) {
+                    cents = rollups.monthCents(m);
+                    monthCount = rollups.monthCount(m);
+                } else {
+                    for (int id : topicIds) {
+                        cents += rollups.topicMonthCents(id, m);
+                        monthCount += rollups.topicMonthCount(id, m);
                     }
                 }
+                if (monthCount > 0) {
+                    accumulate(byMonth, YearMonth.of(year, m).toString(), cents, monthCount);
+                }
+            }
+            byDay = null;
+        } else if (topicIds == null) {
+            YearMonth yearMonth = YearMonth.of(year, month);
+            for (int d = 1; d <= yearMonth.lengthOfMonth(); d++) {
+                LocalDate date = yearMonth.atDay(d);
+                if (rollups.dayCount(date) > 0) {
+                    accumulate(byDay, date.toString(), rollups.dayCents(date), rollups.dayCount(date));
+                }
+            }
+        } else {
+            // Day and topic totals are not materialized; the topic's posting lists narrow the rows
+            ExpenseQuery query = ExpenseQuery.builder().month(month).topic(topic).build();
+            for (int row : columns.select(query)) {
+                Expense expense = columns.expense(row);
+                accumulate(byDay, expense.getDate(), ExpenseColumns.toCents(expense.getAmount()), 1);
+            }
+        }
+
+        if (topicIds == null) {
+            totalCents = month != null ? rollups.monthCents(month) : rollups.totalCents();
+            count = month != null ? rollups.monthCount(month) : rollups.count();
+        }
+        return ExpenseSummary.builder()
+                .year(year)
+                .month(month)
+                .topic(topic)
+                .total(totalCents / 100.0)
+                .count(count)
+                .byMonth(totals(byMonth))
+                .byDay(totals(byDay))
+                .byTopic(totals(byTopic))
+                .build();
+    }
+
+    @Override
+    public UpsertResult addOrUpdateExpenses(int year, List<Expense> expenses) {
+        UpsertResult result;
+        try {
+            result = expenseRepository.upsert(year, expenses);
+        } catch (RuntimeException e) {
+            // The write may have been partially applied, reload the year on next read
+            yearCache.invalidate(year);
+            throw e;
+        }
+        yearCache.update(year, columns -> columns.withUpserts(expenses));
+        eventPublisher.publishEvent(new ExpensesChangedEvent(year));
+        return result;
+    }
+
+    @Override
+    public int deleteExpenses(int year, List<Expense> expenses) {
+        int deleted;
+        try {
+            deleted = expenseRepository.delete(year, expenses);
+        } catch (RuntimeException e) {
+            yearCache.invalidate(year);
+            throw e;
+        }
+        yearCache.update(year, columns -> columns.withDeletes(expenses));
+        eventPublisher.publishEvent(new ExpensesChangedEvent(year));
+        return deleted;
+    }
+
+    @Override
+    public List<Expense> deleteExpensesMatching(int year, ExpenseQuery query) {
+        requireCriteria(query);
+        return delete(year, query);
+    }
+
+    @Override
+    public List<Expense> deleteAllExpenses(int year) {
+        return delete(year, ExpenseQuery.ALL);
+    }
+
+    private List<Expense> delete(int year, ExpenseQuery query) {
+        List<Expense> matches = new ArrayList<>(findExpenses(year, query));
+        if (!matches.isEmpty()) {
+            deleteExact(year, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Deletes the resolved rows themselves; deleting by date and topic would also remove
+     * rows sharing them with another amount.
+     */
+    private void deleteExact(int year, List<Expense> expenses) {
+        try {
+            expenseRepository.deleteExact(year, expenses);
+        } catch (RuntimeException e) {
+            yearCache.invalidate(year);
+            throw e;
+        }
+        yearCache.update(year, columns -> columns.withExactDeletes(expenses));
+        eventPublisher.publishEvent(new ExpensesChangedEvent(year));
+    }
+
+    @Override
+    public List<Expense> updateExpensesMatching(int year, ExpenseQuery query, ExpenseChange change) {
+        requireCriteria(query);
+        List<Expense> matches = new ArrayList<>(findExpenses(year, query));
+        if (matches.isEmpty() || change.isEmpty()) {
+            return List.of();
+        }
+        List<Expense> updated = matches.stream().map(change::applyTo).toList();
+
+        // Checked before anything is written, so a rejected change leaves every expense as it was
+        Map<Integer, List<Expense>> byYear = new LinkedHashMap<>();
+        Set<String> newKeys = new HashSet<>();
+        List<Expense> moved = new ArrayList<>();
+        for (int i = 0; i < matches.size(); i++) {
+            Expense expense = updated.get(i);
+            LocalDate date = LocalDate.parse(expense.getDate());
+            // The stores keep one expense per date and topic, so the upsert would merge them
+            if (!newKeys.add(key(expense))) {
+                throw new IllegalArgumentException(String.format(
+                        "The change would merge several expenses into one %s expense on %s", expense.getTopic(), date));
+            }
+            if (!key(expense).equals(key(matches.get(i)))) {
+                if (exists(date, expense.getTopic())) {
+                    throw new IllegalArgumentException(String.format(
+                            "The change would overwrite the existing %s expense on %s", expense.getTopic(), date));
+                }
+                moved.add(matches.get(i));
             }
+            byYear.computeIfAbsent(date.getYear(), y -> new ArrayList<>()).add(expense);
+        }
+
+        // The new rows are written first, so a failed write never loses the old ones
+        byYear.forEach(this::addOrUpdateExpenses);
+        if (!moved.isEmpty()) {
+            try {
+                deleteExact(year, moved);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Saved the updated expenses, but failed to delete "
+                        + moved.size() + " old expense(s): " + e.getMessage(), e);
+            }
+        }
+        return updated;
+    }
 
-            // Sort expenses by date in ascending order
-            expenses.sort((e1, e2) -> e1.getDate().compareTo(e2.getDate()));
+    private boolean exists(LocalDate date, String topic) {
+        ExpenseQuery day = ExpenseQuery.builder().month(date.getMonthValue()).day(date.getDayOfMonth()).build();
+        return findExpenses(date.getYear(), day).stream().anyMatch(expense -> expense.getTopic().equalsIgnoreCase(topic));
+    }
+
+    private static String key(Expense expense) {
+        return expense.getDate() + "|" + expense.getTopic().toLowerCase();
+    }
+
+    private static void requireCriteria(ExpenseQuery query) {
+        // A query without criteria matches the whole year, which must be asked for explicitly
+        if (query.isEmpty()) {
+            throw new IllegalArgumentException("At least one of month, day, topic or amount must be provided");
+        }
+    }
+
+    private ExpenseColumns loadYear(int year) {
+        return yearCache.get(year, expenseRepository::findColumnsByYear);
+    }
+
+    private static void accumulate(Map<String, long[]> totals, String key, long cents, int count) {
+        long[] total = totals.computeIfAbsent(key, k -> new long[2]);
+        total[0] += cents;
+        total[1] += count;
+    }
 
-        } catch (IOException e) {
-            log.warn("Error accessing Google Sheets for year {}: {}", year, e.getMessage());
-            // Return empty list instead of throwing exception
-            return new ArrayList<>();
+    private static Map<String, ExpenseSummary.Total> totals(Map<String, long[]> totals) {
+        if (totals == null) {
+            return null;
         }
-        return expenses;
+        Map<String, ExpenseSummary.Total> result = new LinkedHashMap<>();
+        totals.forEach((key, total) -> result.put(key, new ExpenseSummary.Total(total[0] / 100.0, (int) total[1])));
+        return result;
     }
 }
@@ -0,0 +1,211 @@
+package org.rkanaje.expense.ai.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache of the columnar expenses of each year.
+ * The cache is bounded by the total number of cached expenses and evicts the least
+ * recently used years first. Writes patch the cached year with {@link #update(int, UnaryOperator)}
+ * or drop it with {@link #invalidate(int)}. Entries are reloaded after a TTL so edits
+ * made directly in the sheet show up.
+ */
+@Slf4j
+@Component
+public class ExpenseYearCache {
+
+    private final long maxExpenses;
+    private final long ttlMillis;
+
+    private final Map<Integer, Long> loadedAt = new HashMap<>();
+    private final LinkedHashMap<Integer, ExpenseColumns> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private final Map<Integer, Long> generations = new HashMap<>();
+    private long cachedExpenses;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ExpenseYearCache(@Value("${expense.cache.max-expenses:200000}") long maxExpenses,
+                            @Value("${expense.cache.ttl-ms:600000}") long ttlMillis,
+                            MeterRegistry meterRegistry) {
+        this.maxExpenses = maxExpenses;
+        this.ttlMillis = ttlMillis;
+
+        FunctionCounter.builder("expense.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("expense.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("expense.cache.evictions", evictions, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("expense.cache.size", this, cache -> cache.stats().getExpenses())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached expenses for the year, loading them with the given loader on a miss.
+     *
+     * @param year   The year to look up
+     * @param loader Loads the expenses of a year from the backing store
+     * @return The expenses of the year
+     */
+    public ExpenseColumns get(int year, IntFunction<ExpenseColumns> loader) {
+        long generation;
+        synchronized (this) {
+            ExpenseColumns cached = lookup(year);
+            if (cached != null) {
+                return cached;
+            }
+            generation = generations.getOrDefault(year, 0L);
+        }
+
+        long started = System.currentTimeMillis();
+        ExpenseColumns loaded = loader.apply(year);
+
+        synchronized (this) {
+            store(year, loaded, generation, started);
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the cached expenses for each of the years, loading all missing years with
+     * a single call to the given loader.
+     *
+     * @param years  The years to look up
+     * @param loader Loads the expenses of several years from the backing store
+     * @return The expenses of each requested year, in ascending year order
+     */
+    public Map<Integer, ExpenseColumns> getAll(Collection<Integer> years,
+                                               Function<Set<Integer>, Map<Integer, ExpenseColumns>> loader) {
+        Map<Integer, ExpenseColumns> result = new TreeMap<>();
+        Map<Integer, Long> missing = new TreeMap<>();
+        synchronized (this) {
+            for (int year : years) {
+                ExpenseColumns cached = lookup(year);
+                if (cached != null) {
+                    result.put(year, cached);
+                } else {
+                    missing.put(year, generations.getOrDefault(year, 0L));
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long started = System.currentTimeMillis();
+        Map<Integer, ExpenseColumns> loaded = loader.apply(missing.keySet());
+
+        synchronized (this) {
+            missing.forEach((year, generation) -> {
+                ExpenseColumns columns = loaded.get(year);
+                if (columns != null) {
+                    store(year, columns, generation, started);
+                    result.put(year, columns);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the cached expenses of the year with the result of the given function,
+     * if the year is cached. The entry keeps its original load time.
+     */
+    public synchronized void update(int year, UnaryOperator<ExpenseColumns> patch) {
+        generations.merge(year, 1L, Long::sum);
+        ExpenseColumns cached = entries.get(year);
+        if (cached != null) {
+            ExpenseColumns patched = patch.apply(cached);
+            entries.put(year, patched);
+            cachedExpenses += patched.size() - cached.size();
+            evict(year);
+        }
+    }
+
+    public synchronized void invalidate(int year) {
+        generations.merge(year, 1L, Long::sum);
+        if (remove(year)) {
+            log.debug("Invalidated cached expenses for year {}", year);
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), cachedExpenses);
+    }
+
+    private ExpenseColumns lookup(int year) {
+        ExpenseColumns cached = entries.get(year);
+        if (cached != null && System.currentTimeMillis() - loadedAt.get(year) > ttlMillis) {
+            remove(year);
+            cached = null;
+        }
+        (cached != null ? hits : misses).incrementAndGet();
+        return cached;
+    }
+
+    private void store(int year, ExpenseColumns loaded, long generation, long loadedAtMillis) {
+        // Bumped by a write since the load started, the loaded expenses may be stale
+        if (generations.getOrDefault(year, 0L) != generation) {
+            return;
+        }
+        remove(year);
+        entries.put(year, loaded);
+        loadedAt.put(year, loadedAtMillis);
+        cachedExpenses += loaded.size();
+        evict(year);
+    }
+
+    private boolean remove(int year) {
+        ExpenseColumns removed = entries.remove(year);
+        loadedAt.remove(year);
+        if (removed != null) {
+            cachedExpenses -= removed.size();
+        }
+        return removed != null;
+    }
+
+    private void evict(int keep) {
+        Iterator<Map.Entry<Integer, ExpenseColumns>> iterator = entries.entrySet().iterator();
+        while (cachedExpenses > maxExpenses && iterator.hasNext()) {
+            Map.Entry<Integer, ExpenseColumns> eldest = iterator.next();
+            if (eldest.getKey() == keep) {
+                continue; // Always keep the year that was just loaded
+            }
+            cachedExpenses -= eldest.getValue().size();
+            loadedAt.remove(eldest.getKey());
+            iterator.remove();
+            evictions.incrementAndGet();
+            log.debug("Evicted cached expenses for year {}", eldest.getKey());
+        }
+    }
+
+    @lombok.Value
+    public static class Stats {
+        long hits;
+        long misses;
+        long evictions;
+        int years;
+        long expenses;
+    }
+}
@@ -0,0 +1,11 @@
+package org.rkanaje.expense.ai.service;
+
+import lombok.Value;
+
+/**
+ * Published after expenses of a year have been added, updated or deleted.
+ */
+@Value
+public class ExpensesChangedEvent {
+    int year;
+}
@@ -0,0 +1,198 @@
+package org.rkanaje.expense.ai.service;
+
+import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.tool.DateTool;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rule-based extraction of simple expense messages such as "spent 25.50 on lunch today"
+ * or "coffee 4 and parking 12", without a model call.
+ * A message is split into clauses on commas, semicolons, full stops, "and" and "plus". Each clause must hold
+ * exactly one amount, at most one date (today, yesterday, day before yesterday, a
+ * weekday, "last" weekday or yyyy-MM-dd) and a topic of one to three words once filler
+ * words are removed. Either every clause has a date or none does, in which case all are
+ * dated today; "coffee 4 and parking 12 yesterday" is ambiguous and left to the model.
+ * A number directly followed by a topic word is a count rather than a price ("bought 2
+ * tickets"), so such a clause is only accepted when the number carries a currency marker
+ * ($, dollars, rs, ...).
+ * Anything else, including questions and edit or delete requests, is not parsed so the
+ * caller can fall back to the model.
+ */
+@Component
+public class FastPathExpenseParser {
+
+    private static final int MAX_TOPIC_WORDS = 3;
+
+    private static final Pattern CLAUSE_SEPARATOR = Pattern.compile("\\s*(?:[,;]|\\.(?=\\s)|\\band\\b|\\bplus\\b)\\s*");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[.!]+$");
+    private static final Pattern ISO_DATE = Pattern.compile("\\b(\\d{4})-(\\d{2})-(\\d{2})\\b");
+    static final Pattern RELATIVE_DATE = Pattern.compile(
+            "\\b(?:(day before yesterday)|(today|tonight|this morning)|(yesterday)"
+                    + "|(?:(last)\\s+|on\\s+)?(monday|tuesday|wednesday|thursday|friday|saturday|sunday))\\b");
+    private static final Pattern AMOUNT = Pattern.compile(
+            "(?<![\\w.])(?:\\$|usd\\s*|rs\\.?\\s*|₹)?(\\d{1,7}(?:\\.\\d{1,2})?)"
+                    + "(?:\\s*(?:\\$|dollars?|bucks|usd|rs|rupees))?(?![\\w.])");
+    private static final Pattern WORD = Pattern.compile("[a-z][a-z'&-]*");
+
+    // Words that signal a question or a change to existing expenses
+    private static final Set<String> NON_ADD_WORDS = Set.of(
+            "delete", "remove", "undo", "cancel", "refund", "refunded", "return", "returned", "update",
+            "change", "changed", "edit", "fix", "replace", "instead", "not", "don't", "didn't",
+            "how", "what", "which", "when", "where", "why", "show", "list", "total", "sum", "summary",
+            "much", "many", "each", "per", "every", "split", "half", "budget", "between", "from");
+    private static final Set<String> FILLER_WORDS = Set.of(
+            "i", "i've", "ive", "we", "just", "spent", "spend", "paid", "pay", "bought", "buy", "got",
+            "had", "for", "on", "at", "in", "a", "an", "the", "my", "our", "some", "of", "to", "was",
+            "were", "it", "cost", "costs", "worth", "about", "around", "add", "added", "expense",
+            "log", "record", "dollars", "dollar", "bucks", "usd", "rs", "rupees");
+
+    private final DateTool dateTool;
+
+    public FastPathExpenseParser(DateTool dateTool) {
+        this.dateTool = dateTool;
+    }
+
+    /**
+     * Returns the expenses of the message, or empty if the message is not a simple list
+     * of new expenses.
+     */
+    public Optional<List<Expense>> parse(String message) {
+        if (message == null || message.isBlank() || message.indexOf('?') >= 0) {
+            return Optional.empty();
+        }
+        String text = TRAILING_PUNCTUATION.matcher(message.toLowerCase(Locale.ROOT).trim()).replaceAll("");
+        for (String word : text.split("[^a-z']+")) {
+            if (NON_ADD_WORDS.contains(word)) {
+                return Optional.empty();
+            }
+        }
+
+        LocalDate today = LocalDate.parse(dateTool.getDate());
+        List<Expense> expenses = new ArrayList<>();
+        int dated = 0;
+        for (String clause : CLAUSE_SEPARATOR.split(text)) {
+            if (clause.isEmpty()) {
+                continue;
+            }
+            Clause parsed = parseClause(clause, today);
+            if (parsed == null) {
+                return Optional.empty();
+            }
+            if (parsed.dated) {
+                dated++;
+            }
+            expenses.add(parsed.expense);
+        }
+        if (expenses.isEmpty() || dated > 0 && dated < expenses.size()) {
+            return Optional.empty();
+        }
+        return Optional.of(expenses);
+    }
+
+    private static Clause parseClause(String clause, LocalDate today) {
+        LocalDate date = null;
+        String rest = clause;
+
+        Matcher iso = ISO_DATE.matcher(rest);
+        if (iso.find()) {
+            try {
+                date = LocalDate.of(Integer.parseInt(iso.group(1)), Integer.parseInt(iso.group(2)),
+                        Integer.parseInt(iso.group(3)));
+            } catch (DateTimeException e) {
+                return null;
+            }
+            rest = remove(rest, iso);
+        }
+        Matcher relative = RELATIVE_DATE.matcher(rest);
+        if (relative.find()) {
+            if (date != null) {
+                return null;
+            }
+            date = relativeDate(relative, today);
+            rest = remove(rest, relative);
+        }
+        if (ISO_DATE.matcher(rest).find() || RELATIVE_DATE.matcher(rest).find()) {
+            return null;
+        }
+
+        Matcher amount = AMOUNT.matcher(rest);
+        if (!amount.find()) {
+            return null;
+        }
+        double value = Double.parseDouble(amount.group(1));
+        boolean currency = amount.group().length() > amount.group(1).length();
+        String next = rest.substring(amount.end()).trim().split("\\s+")[0];
+        if (!currency && !next.isEmpty() && !FILLER_WORDS.contains(next)) {
+            return null; // "2 tickets" is a count, not a price
+        }
+        rest = remove(rest, amount);
+        if (value <= 0 || AMOUNT.matcher(rest).find()) {
+            return null;
+        }
+
+        List<String> topic = new ArrayList<>();
+        for (String token : rest.trim().split("\\s+")) {
+            if (token.isEmpty() || FILLER_WORDS.contains(token)) {
+                continue;
+            }
+            if (!WORD.matcher(token).matches()) {
+                return null;
+            }
+            topic.add(token);
+        }
+        if (topic.isEmpty() || topic.size() > MAX_TOPIC_WORDS) {
+            return null;
+        }
+
+        Expense expense = new Expense(value, String.join(" ", topic), (date != null ? date : today).toString());
+        return new Clause(expense, date != null);
+    }
+
+    /**
+     * Returns the date of a {@link #RELATIVE_DATE} match.
+     */
+    static LocalDate relativeDate(MatchResult matcher, LocalDate today) {
+        if (matcher.group(1) != null) {
+            return today.minusDays(2);
+        }
+        if (matcher.group(2) != null) {
+            return today;
+        }
+        if (matcher.group(3) != null) {
+            return today.minusDays(1);
+        }
+        DayOfWeek weekday = DayOfWeek.valueOf(matcher.group(5).toUpperCase(Locale.ROOT));
+        // "last Friday" is never today; a bare weekday is the most recent one
+        return today.with(matcher.group(4) != null
+                ? TemporalAdjusters.previous(weekday)
+                : TemporalAdjusters.previousOrSame(weekday));
+    }
+
+    private static String remove(String text, Matcher matcher) {
+        return text.substring(0, matcher.start()) + " " + text.substring(matcher.end());
+    }
+
+    private static class Clause {
+
+        private final Expense expense;
+        private final boolean dated;
+
+        Clause(Expense expense, boolean dated) {
+            this.expense = expense;
+            this.dated = dated;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.rkanaje.expense.ai.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for model calls. At most {@code expense.admission.max-concurrent}
+ * calls run at once, which should match the number of requests Ollama serves in
+ * parallel; the others wait in a bounded queue, {@link Priority#PARSE} calls ahead of
+ * {@link Priority#CHAT} calls and in arrival order within a priority.
+ * Each priority has a deadline. A call whose expected wait, estimated from the average
+ * duration of recent calls, exceeds its deadline is rejected at once, and a call still
+ * queued at its deadline is rejected then, so callers get an
+ * {@link AdmissionRejectedException} instead of waiting on Ollama's read timeout.
+ */
+@Component
+public class ModelAdmission {
+
+    /**
+     * Admission priority, highest first.
+     */
+    public enum Priority {
+        // Short structured extractions, e.g. from the expense form
+        PARSE,
+        // Conversations with tool calls, which hold a slot much longer
+        CHAT
+    }
+
+    private static final double AVERAGE_WEIGHT = 0.2;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Map<Priority, Long> maxWaitNanos = new EnumMap<>(Priority.class);
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition granted = lock.newCondition();
+    // Guarded by lock
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private final Map<Priority, Integer> queued = new EnumMap<>(Priority.class);
+    private int active;
+    private long sequence;
+    private double averageCallNanos;
+
+    private final Map<Priority, Timer> waitTimes = new EnumMap<>(Priority.class);
+    private final MeterRegistry meterRegistry;
+
+    public ModelAdmission(@Value("${expense.admission.max-concurrent:4}") int maxConcurrent,
+                          @Value("${expense.admission.max-queued:32}") int maxQueued,
+                          @Value("${expense.admission.parse.max-wait-ms:5000}") long parseMaxWaitMillis,
+                          @Value("${expense.admission.chat.max-wait-ms:20000}") long chatMaxWaitMillis,
+                          MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos.put(Priority.PARSE, TimeUnit.MILLISECONDS.toNanos(parseMaxWaitMillis));
+        this.maxWaitNanos.put(Priority.CHAT, TimeUnit.MILLISECONDS.toNanos(chatMaxWaitMillis));
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("expense.admission.active", this, ModelAdmission::active)
+                .description("Model calls running")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            queued.put(priority, 0);
+            String tag = tag(priority);
+            Gauge.builder("expense.admission.queue.depth", this, admission -> admission.queueDepth(priority))
+                    .description("Model calls waiting to start")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+            waitTimes.put(priority, Timer.builder("expense.admission.wait")
+                    .description("Time admitted model calls waited to start")
+                    .tag("priority", tag)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Runs the call once it is admitted.
+     *
+     * @throws AdmissionRejectedException If the call was not admitted
+     */
+    public <T> T call(Priority priority, Supplier<T> call) {
+        Permit permit = acquire(priority);
+        try {
+            return call.get();
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Waits until a call of the priority is admitted. The returned permit must be
+     * released when the call is done.
+     *
+     * @throws AdmissionRejectedException If the call was not admitted
+     */
+    public Permit acquire(Priority priority) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (active < maxConcurrent && queue.isEmpty()) {
+                active++;
+                return admitted(priority, start);
+            }
+            if (queue.size() >= maxQueued) {
+                throw rejected(priority, "queue-full", expectedWaitNanos(queue.size()));
+            }
+            long expected = expectedWaitNanos(ahead(priority));
+            long maxWait = maxWaitNanos.get(priority);
+            if (expected > maxWait) {
+                throw rejected(priority, "deadline", expected);
+            }
+
+            Waiter waiter = new Waiter(priority, sequence++);
+            queue.add(waiter);
+            queued.merge(priority, 1, Integer::sum);
+            long remaining = maxWait;
+            try {
+                while (!waiter.admitted && remaining > 0) {
+                    remaining = granted.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (waiter.admitted) {
+                    release(0);
+                } else {
+                    dequeue(waiter);
+                }
+                throw new IllegalStateException("Interrupted while waiting for the model", e);
+            }
+            if (!waiter.admitted) {
+                dequeue(waiter);
+                throw rejected(priority, "deadline", expectedWaitNanos(ahead(priority)));
+            }
+            return admitted(priority, start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int active() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth(Priority priority) {
+        lock.lock();
+        try {
+            return queued.get(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit admitted(Priority priority, long start) {
+        long now = System.nanoTime();
+        waitTimes.get(priority).record(now - start, TimeUnit.NANOSECONDS);
+        return new Permit(now);
+    }
+
+    private void release(long callNanos) {
+        lock.lock();
+        try {
+            if (callNanos > 0) {
+                averageCallNanos = averageCallNanos == 0
+                        ? callNanos
+                        : averageCallNanos + AVERAGE_WEIGHT * (callNanos - averageCallNanos);
+            }
+            active--;
+            while (active < maxConcurrent && !queue.isEmpty()) {
+                Waiter next = queue.poll();
+                queued.merge(next.priority, -1, Integer::sum);
+                next.admitted = true;
+                active++;
+            }
+            granted.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dequeue(Waiter waiter) {
+        queue.remove(waiter);
+        queued.merge(waiter.priority, -1, Integer::sum);
+    }
+
+    /**
+     * Returns the number of queued calls that would be admitted before a new call of the
+     * priority.
+     */
+    private int ahead(Priority priority) {
+        int ahead = 0;
+        for (Priority other : Priority.values()) {
+            if (other.compareTo(priority) <= 0) {
+                ahead += queued.get(other);
+            }
+        }
+        return ahead;
+    }
+
+    /**
+     * Estimates how long a call waits behind the running calls and {@code ahead} queued
+     * ones, or 0 while no call has finished yet.
+     */
+    private long expectedWaitNanos(int ahead) {
+        return (long) ((ahead + 1) * averageCallNanos / maxConcurrent);
+    }
+
+    private AdmissionRejectedException rejected(Priority priority, String reason, long expectedWaitNanos) {
+        Counter.builder("expense.admission.rejected")
+                .description("Model calls rejected by admission control")
+                .tag("priority", tag(priority))
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(expectedWaitNanos / 1e9));
+        return new AdmissionRejectedException("Model is busy (" + reason + ")", retryAfterSeconds);
+    }
+
+    private static String tag(Priority priority) {
+        return priority.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * An admitted call. Releasing it more than once has no effect.
+     */
+    public final class Permit {
+
+        private final long admittedAt;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long admittedAt) {
+            this.admittedAt = admittedAt;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                ModelAdmission.this.release(System.nanoTime() - admittedAt);
+            }
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+
+        private final Priority priority;
+        private final long sequence;
+        // Guarded by lock
+        private boolean admitted;
+
+        Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
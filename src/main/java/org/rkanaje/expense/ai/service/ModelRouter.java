@@ -0,0 +1,119 @@
+package org.rkanaje.expense.ai.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.config.OllamaConfig;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Picks the model profile of an operation from the {@code ollama.profiles} and
+ * {@code ollama.routes} properties. The {@code default} profile is {@code ollama.chat}.
+ * A profile with thinking switched off gets the {@code /no_think} switch appended to its
+ * system prompt, which qwen3 models honour; Ollama's API in this Spring AI version has no
+ * option for it.
+ */
+@Slf4j
+@Component
+public class ModelRouter {
+
+    public static final String DEFAULT_PROFILE = "default";
+
+    private static final String NO_THINK = "\n/no_think";
+
+    private final Map<String, Profile> profiles = new LinkedHashMap<>();
+    private final Map<String, OllamaConfig.Route> routes;
+
+    public ModelRouter(OllamaConfig ollamaConfig) {
+        OllamaConfig.Chat chat = ollamaConfig.getChat();
+        profiles.put(DEFAULT_PROFILE, profile(DEFAULT_PROFILE, chat, chat.getOptions(), chat.getKeepAlive()));
+        ollamaConfig.getProfiles().forEach((name, profile) ->
+                profiles.put(name, profile(name, profile, chat.getOptions(), chat.getKeepAlive())));
+
+        this.routes = ollamaConfig.getRoutes();
+        routes.forEach((operation, route) -> {
+            String profile = route.getProfile() != null ? route.getProfile() : DEFAULT_PROFILE;
+            checkProfile(profile, operation);
+            if (route.getEscalateTo() != null) {
+                checkProfile(route.getEscalateTo(), operation);
+            }
+            log.info("Model route {}: {}{}", operation, profile,
+                    route.getEscalateTo() != null ? ", escalating to " + route.getEscalateTo() : "");
+        });
+    }
+
+    public Profile defaultProfile() {
+        return profiles.get(DEFAULT_PROFILE);
+    }
+
+    public Collection<Profile> profiles() {
+        return profiles.values();
+    }
+
+    /**
+     * Returns the profile the operation runs on.
+     */
+    public Profile route(String operation) {
+        OllamaConfig.Route route = routes.get(operation);
+        return profiles.get(route != null && route.getProfile() != null ? route.getProfile() : DEFAULT_PROFILE);
+    }
+
+    /**
+     * Returns the profile to retry the operation with when its output fails validation.
+     */
+    public Optional<Profile> escalation(String operation) {
+        OllamaConfig.Route route = routes.get(operation);
+        return Optional.ofNullable(route != null ? route.getEscalateTo() : null).map(profiles::get);
+    }
+
+    private void checkProfile(String name, String operation) {
+        if (!profiles.containsKey(name)) {
+            throw new IllegalStateException("Unknown model profile " + name + " in route " + operation);
+        }
+    }
+
+    private static Profile profile(String name, OllamaConfig.Chat chat, OllamaConfig.Options defaults,
+                                   String defaultKeepAlive) {
+        if (chat.getModel() == null) {
+            throw new IllegalStateException("Model profile " + name + " has no model");
+        }
+        // Each option not set on the profile is inherited from the defaults
+        OllamaConfig.Options options = chat.getOptions() != null ? chat.getOptions() : new OllamaConfig.Options();
+        OllamaConfig.Options inherited = defaults != null ? defaults : new OllamaConfig.Options();
+        OllamaOptions ollamaOptions = OllamaOptions.builder()
+                .model(chat.getModel())
+                .numCtx(options.getNumCtx() != null ? options.getNumCtx() : inherited.getNumCtx())
+                .temperature(options.getTemperature() != null ? options.getTemperature() : inherited.getTemperature())
+                .keepAlive(chat.getKeepAlive() != null ? chat.getKeepAlive() : defaultKeepAlive)
+                .build();
+        return new Profile(name, ollamaOptions, chat.getThink());
+    }
+
+    /**
+     * A model with its options.
+     */
+    @lombok.Value
+    public static class Profile {
+        String name;
+        OllamaOptions options;
+        Boolean think;
+
+        /**
+         * Returns the options to send; a copy, since requests may modify them.
+         */
+        public OllamaOptions options() {
+            return options.copy();
+        }
+
+        /**
+         * Returns the system prompt adapted to the profile's think mode.
+         */
+        public String system(String prompt) {
+            return Boolean.FALSE.equals(think) ? prompt + NO_THINK : prompt;
+        }
+    }
+}
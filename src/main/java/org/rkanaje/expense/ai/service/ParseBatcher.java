@@ -0,0 +1,220 @@
+package org.rkanaje.expense.ai.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.model.Expense;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects concurrent {@code /parse} messages for a few milliseconds and extracts their
+ * expenses with a single model call.
+ * The first caller of a batch waits up to {@code expense.parse.batch.max-wait-ms} for
+ * others to join, or until the batch holds {@code expense.parse.batch.max-size} messages,
+ * and then makes the call on its own thread. The model gets the messages as a JSON object
+ * keyed by id and answers with an object of expense arrays under the same keys.
+ * A message whose answer is missing or invalid, or that ended up alone in its batch,
+ * is not parsed here; its caller falls back to a call of its own. When the batch call is
+ * not admitted, every message of the batch fails with an {@link AdmissionRejectedException}.
+ */
+@Slf4j
+@Component
+public class ParseBatcher {
+
+    private static final ParameterizedTypeReference<Map<String, List<Expense>>> BATCH_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final ChatClient chatClient;
+    private final PromptTemplateRegistry promptTemplates;
+    private final ObjectMapper objectMapper;
+    private final ModelAdmission admission;
+    private final ModelRouter modelRouter;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long maxWaitNanos;
+
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition sealed = lock.newCondition();
+    // The batch still accepting messages, guarded by lock
+    private Batch open;
+
+    public ParseBatcher(ChatClient chatClient,
+                        PromptTemplateRegistry promptTemplates,
+                        ObjectMapper objectMapper,
+                        ModelAdmission admission,
+                        ModelRouter modelRouter,
+                        @Value("${expense.parse.batch.enabled:false}") boolean enabled,
+                        @Value("${expense.parse.batch.max-size:8}") int maxSize,
+                        @Value("${expense.parse.batch.max-wait-ms:20}") long maxWaitMillis,
+                        MeterRegistry meterRegistry) {
+        this.chatClient = chatClient;
+        this.promptTemplates = promptTemplates;
+        this.objectMapper = objectMapper;
+        this.admission = admission;
+        this.modelRouter = modelRouter;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+        this.batchSizes = DistributionSummary.builder("expense.parse.batch.size")
+                .description("Messages per batched parse call")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("expense.parse.batch.fallbacks")
+                .description("Batched messages that had to be parsed on their own")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Parses the message as part of a batch.
+     *
+     * @param message The user message
+     * @return The expenses of the message, or empty if the caller has to parse it alone
+     * @throws AdmissionRejectedException If the batch call was not admitted
+     */
+    public Optional<List<Expense>> parse(String message) {
+        Batch batch;
+        int index;
+        boolean leader;
+        lock.lock();
+        try {
+            leader = open == null;
+            if (leader) {
+                open = new Batch();
+            }
+            batch = open;
+            index = batch.messages.size();
+            batch.messages.add(message);
+            if (batch.messages.size() >= maxSize) {
+                open = null;
+                sealed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (leader) {
+            seal(batch);
+            run(batch);
+        }
+        Optional<List<Expense>> result = Optional.ofNullable(await(batch).get(String.valueOf(index)));
+        if (result.isEmpty()) {
+            fallbacks.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Waits until the batch is full or the wait time is up, and stops it accepting messages.
+     */
+    private void seal(Batch batch) {
+        lock.lock();
+        try {
+            long remaining = maxWaitNanos;
+            while (open == batch && remaining > 0) {
+                remaining = sealed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            // Send what has been collected so far
+            Thread.currentThread().interrupt();
+        } finally {
+            if (open == batch) {
+                open = null;
+            }
+            lock.unlock();
+        }
+    }
+
+    private void run(Batch batch) {
+        batchSizes.record(batch.messages.size());
+        if (batch.messages.size() == 1) {
+            batch.result.complete(Map.of());
+            return;
+        }
+        try {
+            Map<String, String> input = new LinkedHashMap<>();
+            for (int i = 0; i < batch.messages.size(); i++) {
+                input.put(String.valueOf(i), batch.messages.get(i));
+            }
+            String user = objectMapper.writeValueAsString(input);
+            // Messages with invalid answers fall back to a single call, which may escalate
+            ModelRouter.Profile profile = modelRouter.route("parse");
+            Map<String, List<Expense>> response = admission.call(ModelAdmission.Priority.PARSE, () -> chatClient.prompt()
+                    .options(profile.options())
+                    .system(profile.system(promptTemplates.render("system_expense_batch")))
+                    .user(user)
+                    .call()
+                    .entity(BATCH_RESPONSE));
+            batch.result.complete(valid(response));
+        } catch (AdmissionRejectedException e) {
+            // Falling back one by one would only queue more calls
+            batch.result.completeExceptionally(e);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Batched parse of {} messages failed, parsing them one by one: {}",
+                    batch.messages.size(), e.getMessage());
+            batch.result.complete(Map.of());
+        }
+    }
+
+    /**
+     * Keeps the answers that pass the same checks as a single-message answer, so an answer
+     * such as a "last Friday" date falls back to a single call instead of failing on write.
+     */
+    private static Map<String, List<Expense>> valid(Map<String, List<Expense>> response) {
+        Map<String, List<Expense>> valid = new LinkedHashMap<>();
+        if (response == null) {
+            return valid;
+        }
+        response.forEach((id, expenses) -> {
+            if (ExpenseChatService.isValid(expenses)) {
+                valid.put(id, expenses);
+            }
+        });
+        return valid;
+    }
+
+    private static Map<String, List<Expense>> await(Batch batch) {
+        try {
+            return batch.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AdmissionRejectedException rejected) {
+                throw rejected;
+            }
+            return Map.of();
+        }
+    }
+
+    private static class Batch {
+
+        private final List<String> messages = new ArrayList<>();
+        private final CompletableFuture<Map<String, List<Expense>>> result = new CompletableFuture<>();
+    }
+}
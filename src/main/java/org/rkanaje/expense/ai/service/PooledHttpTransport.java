@@ -0,0 +1,356 @@
+package org.rkanaje.expense.ai.service;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.message.StatusLine;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.classic.AbstractClassicEntityProducer;
+import org.apache.hc.core5.http.nio.support.classic.ContentInputStream;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * A Google API {@link HttpTransport} on a pooled Apache HttpClient 5 async client.
+ * Connections are kept alive and reused, and with HTTP/2 enabled the version is
+ * negotiated through ALPN, so concurrent requests to the same host share one
+ * multiplexed connection instead of each opening their own.
+ * Bodies are passed through as they are: the Google client asks for gzip responses and
+ * decompresses them itself, and gzips request bodies where it sees fit.
+ * Request and response bodies are streamed through bounded buffers, so a full-year
+ * Sheets read is never held in memory by the transport.
+ * The read timeout of each Google request becomes the response timeout of its
+ * exchange; connect timeouts are set for the pool.
+ */
+public class PooledHttpTransport extends HttpTransport {
+
+    // Bodies pass through buffers of this size, so memory per exchange does not grow with the body
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CloseableHttpAsyncClient client;
+
+    /**
+     * @param maxConnections Connections kept open in total and per host
+     * @param keepAlive      How long an idle connection is kept for reuse
+     * @param connectTimeout Time allowed to connect and to lease a pooled connection
+     * @param http2          Whether to negotiate HTTP/2 with hosts that support it
+     */
+    public PooledHttpTransport(int maxConnections, Duration keepAlive, Duration connectTimeout, boolean http2) {
+        TimeValue idle = TimeValue.ofMilliseconds(keepAlive.toMillis());
+        Timeout connect = Timeout.ofMilliseconds(connectTimeout.toMillis());
+        this.client = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .setMessageMultiplexing(http2)
+                        .setDefaultTlsConfig(TlsConfig.custom()
+                                .setVersionPolicy(http2 ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                                .build())
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(connect)
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(connect)
+                        .build())
+                .setKeepAliveStrategy((response, context) -> idle)
+                .evictIdleConnections(idle)
+                // The Google client retries and follows redirects itself
+                .disableAutomaticRetries()
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .build();
+        client.start();
+    }
+
+    @Override
+    public boolean supportsMethod(String method) {
+        return true;
+    }
+
+    @Override
+    protected LowLevelHttpRequest buildRequest(String method, String url) {
+        return new Request(new BasicHttpRequest(method, URI.create(url)));
+    }
+
+    @Override
+    public void shutdown() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    private final class Request extends LowLevelHttpRequest {
+
+        private final BasicHttpRequest request;
+        private Timeout responseTimeout;
+
+        Request(BasicHttpRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            // Derived from the body by the client
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                request.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setTimeout(int connectTimeout, int readTimeout) {
+            responseTimeout = readTimeout > 0 ? Timeout.ofMilliseconds(readTimeout) : Timeout.DISABLED;
+        }
+
+        @Override
+        public LowLevelHttpResponse execute() throws IOException {
+            // The I/O reactor asks for the body once the exchange is under way; the writer is
+            // handed back and run on this thread, as NetHttpTransport writes on the caller's
+            CompletableFuture<Runnable> bodyWriter = new CompletableFuture<>();
+            BodyProducer body = getStreamingContent() != null
+                    ? new BodyProducer(getContentType() != null ? ContentType.parse(getContentType()) : null, bodyWriter::complete)
+                    : null;
+            ResponseConsumer consumer = new ResponseConsumer();
+            HttpClientContext context = HttpClientContext.create();
+            if (responseTimeout != null) {
+                context.setRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(responseTimeout)
+                        .build());
+            }
+
+            Future<Void> exchange = client.execute(new BasicRequestProducer(request, body), consumer, context, null);
+            try {
+                if (body != null) {
+                    CompletableFuture.anyOf(bodyWriter, consumer.head).get();
+                    if (bodyWriter.isDone()) {
+                        bodyWriter.get().run();
+                        if (body.getException() != null) {
+                            exchange.cancel(true);
+                            throw body.getException() instanceof IOException ioException
+                                    ? ioException
+                                    : new IOException(body.getException());
+                        }
+                    }
+                }
+                return new Response(consumer.head.get(), consumer, exchange);
+            } catch (InterruptedException e) {
+                exchange.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted during " + request.getMethod() + " " + request.getRequestUri());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        /**
+         * Streams the request body through a buffer of {@link #BUFFER_SIZE} bytes.
+         */
+        private final class BodyProducer extends AbstractClassicEntityProducer {
+
+            BodyProducer(ContentType contentType, Executor writer) {
+                super(BUFFER_SIZE, contentType, writer);
+            }
+
+            @Override
+            protected void produceData(ContentType contentType, OutputStream out) throws IOException {
+                getStreamingContent().writeTo(out);
+            }
+
+            @Override
+            public String getContentEncoding() {
+                return Request.this.getContentEncoding();
+            }
+        }
+    }
+
+    /**
+     * Hands the response over once its head arrives and streams the body through a
+     * buffer of {@link #BUFFER_SIZE} bytes; the connection is read only as fast as the
+     * body is consumed.
+     */
+    private static final class ResponseConsumer implements AsyncResponseConsumer<Void> {
+
+        private final CompletableFuture<HttpResponse> head = new CompletableFuture<>();
+        private final SharedInputBuffer buffer = new SharedInputBuffer(BUFFER_SIZE);
+        private volatile Exception failure;
+        private volatile EntityDetails entity;
+        private FutureCallback<Void> callback;
+
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                    FutureCallback<Void> resultCallback) {
+            entity = entityDetails;
+            callback = resultCallback;
+            if (entityDetails == null) {
+                buffer.markEndStream();
+                resultCallback.completed(null);
+            }
+            head.complete(response);
+        }
+
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context) {
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            buffer.updateCapacity(capacityChannel);
+        }
+
+        @Override
+        public void consume(ByteBuffer src) {
+            buffer.fill(src);
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) {
+            buffer.markEndStream();
+            callback.completed(null);
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            failure = cause;
+            head.completeExceptionally(cause);
+            buffer.abort();
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+
+        InputStream content() {
+            return new ContentInputStream(buffer) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return checked(super.read(b, off, len));
+                }
+
+                @Override
+                public int read() throws IOException {
+                    return checked(super.read());
+                }
+
+                // An aborted buffer reads as the end of the stream; report why instead
+                private int checked(int result) throws IOException {
+                    if (result == -1 && failure != null) {
+                        throw failure instanceof IOException ioException ? ioException : new IOException(failure);
+                    }
+                    return result;
+                }
+            };
+        }
+    }
+
+    private static final class Response extends LowLevelHttpResponse {
+
+        private final HttpResponse response;
+        private final ResponseConsumer consumer;
+        private final Future<Void> exchange;
+        private final Header[] headers;
+
+        Response(HttpResponse response, ResponseConsumer consumer, Future<Void> exchange) {
+            this.response = response;
+            this.consumer = consumer;
+            this.exchange = exchange;
+            this.headers = response.getHeaders();
+        }
+
+        @Override
+        public InputStream getContent() {
+            return consumer.entity != null ? consumer.content() : null;
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return headerValue(HttpHeaders.CONTENT_ENCODING);
+        }
+
+        @Override
+        public long getContentLength() {
+            return consumer.entity != null ? consumer.entity.getContentLength() : -1;
+        }
+
+        @Override
+        public String getContentType() {
+            return headerValue(HttpHeaders.CONTENT_TYPE);
+        }
+
+        @Override
+        public String getStatusLine() {
+            return new StatusLine(response).toString();
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            return response.getReasonPhrase();
+        }
+
+        @Override
+        public int getHeaderCount() {
+            return headers.length;
+        }
+
+        @Override
+        public String getHeaderName(int index) {
+            return headers[index].getName();
+        }
+
+        @Override
+        public String getHeaderValue(int index) {
+            return headers[index].getValue();
+        }
+
+        @Override
+        public void disconnect() {
+            // A body that was not read to the end leaves the connection unusable
+            if (!consumer.buffer.isEndStream()) {
+                exchange.cancel(true);
+            }
+        }
+
+        private String headerValue(String name) {
+            Header header = response.getFirstHeader(name);
+            return header != null ? header.getValue() : null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.rkanaje.expense.ai.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.tool.DateTool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The system prompt templates, loaded and parsed once at startup.
+ * Templates are the {@code *.template} files of {@code expense.prompts.location} and are
+ * looked up by file name without the extension. A template may reference the date
+ * variables {@code {{today}}}, {@code {{yesterday}}}, {@code {{year}}}, {@code {{month}}},
+ * {@code {{day}}}, {@code {{monthStart}}}, {@code {{lastMonday}}} and {@code {{lastFriday}}},
+ * which are resolved against {@link DateTool#getDate()}.
+ * A rendered prompt is kept until the date changes, so every request of a day sends the
+ * same system prompt and Ollama can reuse its cached prefix.
+ * With {@code expense.prompts.hot-reload} enabled, changed files are reloaded periodically.
+ */
+@Slf4j
+@Component
+public class PromptTemplateRegistry {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\{(\\w+)}}");
+    private static final String EXTENSION = ".template";
+    private static final List<String> VARIABLES = List.of(
+            "today", "yesterday", "year", "month", "day", "monthStart", "lastMonday", "lastFriday");
+
+    private final ResourcePatternResolver resolver;
+    private final DateTool dateTool;
+    private final String location;
+    private final boolean hotReload;
+
+    private final Map<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+
+    public PromptTemplateRegistry(ResourceLoader resourceLoader,
+                                  DateTool dateTool,
+                                  @Value("${expense.prompts.location:classpath:prompts/}") String location,
+                                  @Value("${expense.prompts.hot-reload:false}") boolean hotReload) {
+        this.resolver = new PathMatchingResourcePatternResolver(resourceLoader);
+        this.dateTool = dateTool;
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.hotReload = hotReload;
+
+        for (Resource resource : templateResources()) {
+            CompiledTemplate template = compile(resource);
+            templates.put(template.name, template);
+        }
+        log.info("Loaded prompt templates {}", templates.keySet());
+    }
+
+    /**
+     * Returns the template rendered for today.
+     *
+     * @param name The template name, e.g. {@code system_expense}
+     * @return The rendered prompt
+     * @throws IllegalArgumentException If there is no such template
+     */
+    public String render(String name) {
+        CompiledTemplate template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown prompt template: " + name);
+        }
+        return template.render(LocalDate.parse(dateTool.getDate()));
+    }
+
+    /**
+     * Reloads the templates whose files changed. A template that no longer parses keeps
+     * its previous version.
+     */
+    @Scheduled(fixedDelayString = "${expense.prompts.reload-interval-ms:5000}")
+    public void reloadChanged() {
+        if (!hotReload) {
+            return;
+        }
+        try {
+            for (Resource resource : templateResources()) {
+                String name = nameOf(resource);
+                CompiledTemplate current = templates.get(name);
+                if (current != null && current.lastModified == lastModified(resource)) {
+                    continue;
+                }
+                try {
+                    templates.put(name, compile(resource));
+                    log.info("Reloaded prompt template {}", name);
+                } catch (RuntimeException e) {
+                    log.warn("Keeping previous prompt template {}: {}", name, e.getMessage());
+                }
+            }
+        } catch (UncheckedIOException e) {
+            log.warn("Failed to check prompt templates for changes: {}", e.getMessage());
+        }
+    }
+
+    private Resource[] templateResources() {
+        try {
+            return resolver.getResources(location + "*" + EXTENSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list prompt templates in " + location, e);
+        }
+    }
+
+    private static CompiledTemplate compile(Resource resource) {
+        long lastModified = lastModified(resource);
+        String text;
+        try (InputStream inputStream = resource.getInputStream()) {
+            text = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read prompt template " + resource.getDescription(), e);
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        Matcher matcher = VARIABLE.matcher(text);
+        int end = 0;
+        while (matcher.find()) {
+            String variable = matcher.group(1);
+            if (!VARIABLES.contains(variable)) {
+                throw new IllegalStateException("Unknown variable {{" + variable + "}} in prompt template "
+                        + resource.getFilename());
+            }
+            literals.add(text.substring(end, matcher.start()));
+            variables.add(variable);
+            end = matcher.end();
+        }
+        literals.add(text.substring(end));
+        return new CompiledTemplate(nameOf(resource), literals.toArray(String[]::new),
+                variables.toArray(String[]::new), lastModified);
+    }
+
+    private static String nameOf(Resource resource) {
+        String filename = resource.getFilename();
+        return filename.substring(0, filename.length() - EXTENSION.length());
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Not backed by a file, treat as never changing
+            return 0;
+        }
+    }
+
+    private static Map<String, String> variables(LocalDate today) {
+        return Map.of(
+                "today", today.toString(),
+                "yesterday", today.minusDays(1).toString(),
+                "year", String.valueOf(today.getYear()),
+                "month", String.valueOf(today.getMonthValue()),
+                "day", String.valueOf(today.getDayOfMonth()),
+                "monthStart", today.withDayOfMonth(1).toString(),
+                "lastMonday", today.with(TemporalAdjusters.previous(DayOfWeek.MONDAY)).toString(),
+                "lastFriday", today.with(TemporalAdjusters.previous(DayOfWeek.FRIDAY)).toString());
+    }
+
+    private static final class CompiledTemplate {
+
+        private final String name;
+        // Literal text around the variables, one more than there are variables
+        private final String[] literals;
+        private final String[] variables;
+        private final long lastModified;
+        private volatile Rendered rendered;
+
+        CompiledTemplate(String name, String[] literals, String[] variables, long lastModified) {
+            this.name = name;
+            this.literals = literals;
+            this.variables = variables;
+            this.lastModified = lastModified;
+        }
+
+        String render(LocalDate today) {
+            Rendered current = rendered;
+            if (current != null && current.getDate().equals(today)) {
+                return current.getText();
+            }
+            Map<String, String> values = variables(today);
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < variables.length; i++) {
+                text.append(literals[i]).append(values.get(variables[i]));
+            }
+            text.append(literals[variables.length]);
+            rendered = new Rendered(today, text.toString());
+            return rendered.getText();
+        }
+    }
+
+    @lombok.Value
+    private static class Rendered {
+        LocalDate date;
+        String text;
+    }
+}
@@ -1,40 +1,108 @@
 package org.rkanaje.expense.ai.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.rkanaje.expense.ai.utils.AIResponseUtil;
-import org.rkanaje.expense.service.BufferedClientHttpResponseWrapper;
+import org.rkanaje.expense.ai.utils.ThinkTagInputStream;
+import org.rkanaje.expense.service.FilteredClientHttpResponseWrapper;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpResponse;
-import org.springframework.util.StreamUtils;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 
+/**
+ * Strips think segments from Ollama responses while they are read and logs the
+ * exchange at DEBUG. Logged bodies are cut at {@code maxLoggedBytes}.
+ */
 @Slf4j
 public class RestClientInterceptor implements ClientHttpRequestInterceptor {
 
+    private final int maxLoggedBytes;
+
+    public RestClientInterceptor(int maxLoggedBytes) {
+        this.maxLoggedBytes = maxLoggedBytes;
+    }
+
     @Override
     public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
-        log.debug(request.getURI().toString());
-        log.debug(Arrays.toString(new String[]{new String(body, StandardCharsets.UTF_8)}));
+        if (log.isDebugEnabled()) {
+            log.debug("Request {} {} ({} bytes): {}", request.getMethod(), request.getURI(), body.length,
+                    preview(body, body.length));
+        }
         ClientHttpResponse response = execution.execute(request, body);
-        // Copy the response body to a byte array for logging
-        byte[] responseBody = StreamUtils.copyToByteArray(response.getBody());
-
-        // Print the response
-        log.debug("Response Before Think: " + new String(responseBody));
-        String responseBodyString = new String(responseBody);
-        responseBodyString = AIResponseUtil.removeThinkTags(responseBodyString);
-        responseBody = responseBodyString.getBytes(StandardCharsets.UTF_8);
-        // Print the response
-        log.debug("Response After Think: " + new String(responseBody));
-
-        // Create a new response with the copied body
-        return new BufferedClientHttpResponseWrapper(response, responseBody);
-        // return execution.execute(request, body);
+        InputStream filtered = new ThinkTagInputStream(response.getBody());
+        if (log.isDebugEnabled()) {
+            filtered = new LoggingInputStream(filtered, request.getURI());
+        }
+        return new FilteredClientHttpResponseWrapper(response, filtered);
     }
-}
 
+    private String preview(byte[] bytes, int length) {
+        String text = new String(bytes, 0, Math.min(length, maxLoggedBytes), StandardCharsets.UTF_8);
+        return length > maxLoggedBytes ? text + "... (truncated)" : text;
+    }
+
+    /**
+     * Keeps the first bytes read and logs them, with the total size, once the body is
+     * exhausted or closed.
+     */
+    private class LoggingInputStream extends FilterInputStream {
+
+        private final URI uri;
+        private final byte[] head = new byte[maxLoggedBytes];
+        private long total;
+        private boolean logged;
+
+        LoggingInputStream(InputStream in, URI uri) {
+            super(in);
+            this.uri = uri;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                logOnce();
+            } else {
+                record(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read < 0) {
+                logOnce();
+            } else {
+                record(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            logOnce();
+            super.close();
+        }
+
+        private void record(byte[] b, int off, int len) {
+            if (total < head.length) {
+                System.arraycopy(b, off, head, (int) total, (int) Math.min(len, head.length - total));
+            }
+            total += len;
+        }
+
+        private void logOnce() {
+            if (!logged) {
+                logged = true;
+                log.debug("Response {} ({} bytes without think segments): {}", uri, total,
+                        preview(head, (int) Math.min(total, Integer.MAX_VALUE)));
+            }
+        }
+    }
+}
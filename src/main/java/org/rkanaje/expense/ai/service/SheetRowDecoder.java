@@ -0,0 +1,155 @@
+package org.rkanaje.expense.ai.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the {@code A:C} rows (date, amount, topic) of a year sheet straight into
+ * {@link ExpenseColumns}.
+ * Rows are expected to be read with {@code valueRenderOption=UNFORMATTED_VALUE} and
+ * {@code dateTimeRenderOption=SERIAL_NUMBER}, so dates arrive as serial day numbers and
+ * amounts as numbers; both are mapped to epoch days and cents without going through
+ * formatted strings. Cells stored as text are still accepted when they hold a
+ * {@code yyyy-MM-dd} date or a plain decimal amount.
+ * The first row is the header. Blank rows are ignored; any other row that cannot be
+ * decoded is reported as malformed with its 1-based sheet row number.
+ */
+public final class SheetRowDecoder {
+
+    // Sheets serial day 0 is 1899-12-30, which is 25569 days before 1970-01-01
+    private static final int SERIAL_EPOCH_OFFSET = 25569;
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private SheetRowDecoder() {
+    }
+
+    public static Result decode(int year, List<List<Object>> values) {
+        ExpenseColumns.Builder builder = ExpenseColumns.builder(year, Math.max(values.size() - 1, 0));
+        List<MalformedRow> malformed = new ArrayList<>();
+
+        for (int i = 1; i < values.size(); i++) {
+            List<Object> row = values.get(i);
+            if (isBlank(row)) {
+                continue;
+            }
+            int sheetRow = i + 1;
+            if (row.size() < 3) {
+                malformed.add(new MalformedRow(sheetRow, "Missing columns"));
+                continue;
+            }
+            int epochDay = epochDay(row.get(0));
+            if (epochDay == Integer.MIN_VALUE) {
+                malformed.add(new MalformedRow(sheetRow, "Invalid date: " + row.get(0)));
+                continue;
+            }
+            long cents = cents(row.get(1));
+            if (cents == INVALID) {
+                malformed.add(new MalformedRow(sheetRow, "Invalid amount: " + row.get(1)));
+                continue;
+            }
+            Object topic = row.get(2);
+            if (topic == null || topic.toString().isBlank()) {
+                malformed.add(new MalformedRow(sheetRow, "Missing topic"));
+                continue;
+            }
+            builder.add(epochDay, cents, topic instanceof String text ? text : topic.toString());
+        }
+        return new Result(builder.build(), malformed);
+    }
+
+    /**
+     * Returns the epoch day of a serial number or {@code yyyy-MM-dd} cell, or
+     * {@link Integer#MIN_VALUE} if it is neither.
+     */
+    static int epochDay(Object cell) {
+        if (cell instanceof Number serial) {
+            // Date-times carry the time as a fraction of the day
+            return (int) Math.floor(serial.doubleValue()) - SERIAL_EPOCH_OFFSET;
+        }
+        if (cell instanceof String text) {
+            return ExpenseColumns.parseEpochDay(text);
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Returns the amount of a numeric or plain decimal text cell in cents, or
+     * {@link Long#MIN_VALUE} if it is neither.
+     */
+    static long cents(Object cell) {
+        if (cell instanceof Number number) {
+            return ExpenseColumns.toCents(number.doubleValue());
+        }
+        if (cell instanceof String text) {
+            return parseCents(text);
+        }
+        return INVALID;
+    }
+
+    /**
+     * Parses {@code [-]digits[.digits]} into cents, rounding half up past two decimals.
+     */
+    static long parseCents(String text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = length > 0 && text.charAt(0) == '-';
+        if (negative) {
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        for (; i < length && text.charAt(i) != '.'; i++, digits++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9' || digits >= 16) {
+                return INVALID;
+            }
+            units = units * 10 + (c - '0');
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (i < length) {
+            i++; // Skip the decimal point
+            for (; i < length; i++, fractionDigits++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return INVALID;
+                }
+                if (fractionDigits < 2) {
+                    fraction = fraction * 10 + (c - '0');
+                } else if (fractionDigits == 2) {
+                    roundUp = c >= '5';
+                }
+            }
+        }
+        if (digits == 0 && fractionDigits == 0) {
+            return INVALID;
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        long cents = units * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    private static boolean isBlank(List<Object> row) {
+        for (Object cell : row) {
+            if (cell != null && !(cell instanceof String text && text.isEmpty())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @lombok.Value
+    public static class Result {
+        ExpenseColumns columns;
+        List<MalformedRow> malformedRows;
+    }
+
+    @lombok.Value
+    public static class MalformedRow {
+        int row;
+        String reason;
+    }
+}
@@ -0,0 +1,162 @@
+package org.rkanaje.expense.ai.service;
+
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.AddSheetRequest;
+import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetRequest;
+import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetResponse;
+import com.google.api.services.sheets.v4.model.Request;
+import com.google.api.services.sheets.v4.model.Sheet;
+import com.google.api.services.sheets.v4.model.SheetProperties;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches the titles and ids of the tabs in the expense spreadsheet so that checking
+ * whether a year sheet exists does not cost a metadata round trip per request.
+ * Entries expire after a TTL and are refreshed in the background; sheets created by
+ * this process are registered immediately.
+ */
+@Slf4j
+@Component
+public class SheetTabRegistry {
+
+    private static final String SHEET_FIELDS = "sheets.properties(sheetId,title)";
+
+    private final Sheets sheetsService;
+    private final String spreadsheetId;
+    private final SheetsClient sheetsClient;
+    private final long ttlMillis;
+
+    private volatile Map<String, Integer> tabs = new ConcurrentHashMap<>();
+    private volatile long loadedAt;
+    // Guards tab creation and reloads, which do Sheets I/O while holding it
+    private final Lock lock = new ReentrantLock();
+
+    public SheetTabRegistry(Sheets sheetsService,
+                            String spreadsheetId,
+                            SheetsClient sheetsClient,
+                            @Value("${google.sheets.tabs.ttl-ms:300000}") long ttlMillis) {
+        this.sheetsService = sheetsService;
+        this.spreadsheetId = spreadsheetId;
+        this.sheetsClient = sheetsClient;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the id of the sheet with the given title, if it exists.
+     */
+    public Optional<Integer> getSheetId(String title) throws IOException {
+        return Optional.ofNullable(currentTabs().get(title));
+    }
+
+    public boolean exists(String title) throws IOException {
+        return currentTabs().containsKey(title);
+    }
+
+    public Set<String> titles() throws IOException {
+        return Collections.unmodifiableSet(currentTabs().keySet());
+    }
+
+    /**
+     * Returns the id of the sheet with the given title, creating it with the given
+     * header row if it does not exist yet.
+     *
+     * @param title     The title of the sheet
+     * @param headerRow The header row to write to a newly created sheet
+     * @return The id of the sheet
+     */
+    public int ensureSheet(String title, List<Object> headerRow) throws IOException {
+        lock.lock();
+        try {
+            Integer sheetId = currentTabs().get(title);
+            if (sheetId == null) {
+                // The tab may have been created outside this process since the last refresh
+                refresh();
+                sheetId = tabs.get(title);
+            }
+            if (sheetId != null) {
+                return sheetId;
+            }
+
+            BatchUpdateSpreadsheetRequest batchUpdateRequest = new BatchUpdateSpreadsheetRequest()
+                    .setRequests(Collections.singletonList(
+                            new Request().setAddSheet(new AddSheetRequest()
+                                    .setProperties(new SheetProperties().setTitle(title)))));
+
+            BatchUpdateSpreadsheetResponse response = sheetsClient.execute(sheetsService.spreadsheets()
+                    .batchUpdate(spreadsheetId, batchUpdateRequest));
+            sheetId = response.getReplies().get(0).getAddSheet().getProperties().getSheetId();
+            tabs.put(title, sheetId);
+
+            // Add header row to the new sheet
+            ValueRange headerBody = new ValueRange()
+                    .setValues(Collections.singletonList(headerRow));
+
+            sheetsClient.execute(sheetsService.spreadsheets().values()
+                    .update(spreadsheetId, title + "!A1", headerBody)
+                    .setValueInputOption("USER_ENTERED"));
+
+            log.info("Created new sheet: {}", title);
+            return sheetId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reloads the tab list, fetching only the sheet properties instead of the whole spreadsheet.
+     */
+    public void refresh() throws IOException {
+        List<Sheet> sheets = sheetsClient.read(sheetsService.spreadsheets()
+                .get(spreadsheetId)
+                .setFields(SHEET_FIELDS))
+                .getSheets();
+
+        Map<String, Integer> loaded = new ConcurrentHashMap<>();
+        if (sheets != null) {
+            for (Sheet sheet : sheets) {
+                loaded.put(sheet.getProperties().getTitle(), sheet.getProperties().getSheetId());
+            }
+        }
+        tabs = loaded;
+        loadedAt = System.currentTimeMillis();
+        log.debug("Loaded {} sheet tab(s)", loaded.size());
+    }
+
+    @Scheduled(fixedDelayString = "${google.sheets.tabs.refresh-interval-ms:60000}",
+            initialDelayString = "${google.sheets.tabs.refresh-interval-ms:60000}")
+    public void refreshInBackground() {
+        try {
+            refresh();
+        } catch (IOException e) {
+            log.warn("Failed to refresh sheet tabs: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, Integer> currentTabs() throws IOException {
+        if (System.currentTimeMillis() - loadedAt > ttlMillis) {
+            lock.lock();
+            try {
+                if (System.currentTimeMillis() - loadedAt > ttlMillis) {
+                    refresh();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return tabs;
+    }
+}
@@ -0,0 +1,205 @@
+package org.rkanaje.expense.ai.service;
+
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes Google Sheets API requests within the spreadsheet quota. Every request takes
+ * a token from a bucket sized to the per-minute quota, requests rejected with 429 or a
+ * 5xx status are retried with exponential backoff and jitter (honoring
+ * {@code Retry-After}), and concurrent identical reads share a single HTTP call.
+ */
+@Slf4j
+@Component
+public class SheetsClient {
+
+    private static final String OPERATION_PREFIX = "com.google.api.services.sheets.v4.Sheets$";
+
+    private final MeterRegistry meterRegistry;
+    private final TokenBucket tokenBucket;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Timer throttleTimer;
+    private final Counter coalescedReads;
+    private final Bulkhead bulkhead;
+
+    private final Map<String, CompletableFuture<Object>> inFlightReads = new ConcurrentHashMap<>();
+
+    public SheetsClient(MeterRegistry meterRegistry,
+                        @Value("${google.sheets.quota.requests-per-minute:60}") int requestsPerMinute,
+                        @Value("${google.sheets.quota.burst:10}") int burst,
+                        @Value("${google.sheets.retry.max-attempts:5}") int maxAttempts,
+                        @Value("${google.sheets.retry.initial-backoff-ms:500}") long initialBackoffMillis,
+                        @Value("${google.sheets.retry.max-backoff-ms:32000}") long maxBackoffMillis,
+                        @Qualifier("sheetsBulkhead") Bulkhead bulkhead) {
+        this.meterRegistry = meterRegistry;
+        this.tokenBucket = new TokenBucket(requestsPerMinute, burst);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.bulkhead = bulkhead;
+        this.throttleTimer = Timer.builder("sheets.throttle.wait")
+                .description("Time requests waited for the Sheets quota")
+                .register(meterRegistry);
+        this.coalescedReads = Counter.builder("sheets.reads.coalesced")
+                .description("Reads that shared an identical in-flight request")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Executes a read. If an identical request (same method and URL) is already in flight,
+     * waits for it and returns its result instead of sending another one. The shared result
+     * must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(AbstractGoogleClientRequest<T> request) throws IOException {
+        String key = request.getRequestMethod() + " " + request.buildHttpRequestUrl().build();
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightReads.putIfAbsent(key, call);
+        if (inFlight != null) {
+            coalescedReads.increment();
+            return (T) await(inFlight);
+        }
+
+        try {
+            T result = execute(request);
+            call.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightReads.remove(key, call);
+        }
+    }
+
+    /**
+     * Executes a request, waiting for the quota and retrying throttled and failed attempts.
+     */
+    public <T> T execute(AbstractGoogleClientRequest<T> request) throws IOException {
+        String operation = operation(request);
+        for (int attempt = 1; ; attempt++) {
+            acquire();
+            try {
+                T result = executeOnce(request);
+                count(operation, "success");
+                return result;
+            } catch (HttpResponseException e) {
+                int status = e.getStatusCode();
+                if (!isRetryable(status) || attempt >= maxAttempts) {
+                    count(operation, "error");
+                    throw e;
+                }
+                long delay = backoff(attempt, e.getHeaders().getRetryAfter());
+                Counter.builder("sheets.retries")
+                        .tag("operation", operation)
+                        .tag("status", String.valueOf(status))
+                        .register(meterRegistry)
+                        .increment();
+                log.warn("Sheets {} failed with status {}, retrying in {} ms (attempt {}/{})",
+                        operation, status, delay, attempt, maxAttempts);
+                sleep(TimeUnit.MILLISECONDS.toNanos(delay));
+            } catch (IOException | RuntimeException e) {
+                count(operation, "error");
+                throw e;
+            }
+        }
+    }
+
+    private <T> T executeOnce(AbstractGoogleClientRequest<T> request) throws IOException {
+        // Only the attempt itself holds a permit, not quota waits or retry backoff
+        bulkhead.acquire();
+        try {
+            return request.execute();
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private void acquire() throws IOException {
+        long wait = tokenBucket.reserve();
+        if (wait > 0) {
+            throttleTimer.record(wait, TimeUnit.NANOSECONDS);
+            log.debug("Waiting {} ms for the Sheets quota", TimeUnit.NANOSECONDS.toMillis(wait));
+            sleep(wait);
+        }
+    }
+
+    private long backoff(int attempt, String retryAfter) {
+        long exponential = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        // Equal jitter: at least half of the exponential delay so retries still back off
+        long delay = exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+        if (retryAfter != null) {
+            try {
+                delay = Math.max(delay, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring non-numeric Retry-After: {}", retryAfter);
+            }
+        }
+        return delay;
+    }
+
+    private void count(String operation, String outcome) {
+        Counter.builder("sheets.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    private static String operation(AbstractGoogleClientRequest<?> request) {
+        // e.g. Sheets$Spreadsheets$Values$Get -> spreadsheets.values.get
+        String name = request.getClass().getName();
+        if (name.startsWith(OPERATION_PREFIX)) {
+            name = name.substring(OPERATION_PREFIX.length());
+        }
+        return name.replace('$', '.').toLowerCase();
+    }
+
+    private static Object await(CompletableFuture<Object> call) throws IOException {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a Sheets read");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static void sleep(long nanos) throws IOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to call Sheets");
+        }
+    }
+}
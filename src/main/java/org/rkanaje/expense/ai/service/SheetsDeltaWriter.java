@@ -0,0 +1,144 @@
+package org.rkanaje.expense.ai.service;
+
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetRequest;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesRequest;
+import com.google.api.services.sheets.v4.model.DeleteDimensionRequest;
+import com.google.api.services.sheets.v4.model.DimensionRange;
+import com.google.api.services.sheets.v4.model.Request;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Writes only the rows that changed in a year sheet instead of clearing and re-uploading it.
+ * Row indexes are 0-based positions in the sheet, i.e. the index of the row in the
+ * {@code values} list returned by a read of the {@code A:C} range (the header is row 0).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SheetsDeltaWriter {
+
+    private static final String VALUE_INPUT_OPTION = "USER_ENTERED";
+
+    private final Sheets sheetsService;
+    private final String spreadsheetId;
+    private final SheetsClient sheetsClient;
+
+    /**
+     * Overwrites existing rows in place and appends new rows after the last one,
+     * all in a single {@code spreadsheets.values.batchUpdate} call.
+     *
+     * @param sheetName The name of the sheet to write to
+     * @param rowCount  Number of rows currently in the sheet (including the header)
+     * @param updates   Replacement rows keyed by their row index
+     * @param appends   Rows to append after the last row
+     * @return Number of rows written
+     */
+    public int writeRows(String sheetName, int rowCount,
+                         Map<Integer, List<Object>> updates, List<List<Object>> appends) throws IOException {
+        List<ValueRange> data = new ArrayList<>();
+
+        // Coalesce adjacent updated rows into a single range
+        TreeMap<Integer, List<Object>> sorted = new TreeMap<>(updates);
+        Integer start = null;
+        List<List<Object>> block = new ArrayList<>();
+        int previous = -2;
+        for (Map.Entry<Integer, List<Object>> entry : sorted.entrySet()) {
+            if (start != null && entry.getKey() != previous + 1) {
+                data.add(rowRange(sheetName, start, block));
+                block = new ArrayList<>();
+                start = null;
+            }
+            if (start == null) {
+                start = entry.getKey();
+            }
+            block.add(entry.getValue());
+            previous = entry.getKey();
+        }
+        if (start != null) {
+            data.add(rowRange(sheetName, start, block));
+        }
+
+        if (appends != null && !appends.isEmpty()) {
+            data.add(rowRange(sheetName, rowCount, appends));
+        }
+
+        if (data.isEmpty()) {
+            return 0;
+        }
+
+        BatchUpdateValuesRequest body = new BatchUpdateValuesRequest()
+                .setValueInputOption(VALUE_INPUT_OPTION)
+                .setData(data);
+        sheetsClient.execute(sheetsService.spreadsheets().values()
+                .batchUpdate(spreadsheetId, body));
+
+        int written = updates.size() + (appends == null ? 0 : appends.size());
+        log.debug("Wrote {} row(s) to {} in {} range(s)", written, sheetName, data.size());
+        return written;
+    }
+
+    /**
+     * Deletes the given rows in a single {@code spreadsheets.batchUpdate} call.
+     * Adjacent rows are collapsed into one request and requests are issued bottom-up
+     * so earlier deletions do not shift the indexes of later ones.
+     *
+     * @param sheetId   The numeric id of the sheet
+     * @param rowIndexes Row indexes to delete
+     * @return Number of rows deleted
+     */
+    public int deleteRows(int sheetId, Collection<Integer> rowIndexes) throws IOException {
+        if (rowIndexes == null || rowIndexes.isEmpty()) {
+            return 0;
+        }
+
+        List<Request> requests = new ArrayList<>();
+        Integer end = null;
+        int current = -1;
+        for (Integer index : new TreeSet<>(rowIndexes).descendingSet()) {
+            if (end != null && index != current - 1) {
+                requests.add(deleteRequest(sheetId, current, end));
+                end = null;
+            }
+            if (end == null) {
+                end = index + 1;
+            }
+            current = index;
+        }
+        requests.add(deleteRequest(sheetId, current, end));
+
+        sheetsClient.execute(sheetsService.spreadsheets()
+                .batchUpdate(spreadsheetId, new BatchUpdateSpreadsheetRequest().setRequests(requests)));
+
+        log.debug("Deleted {} row(s) from sheet {} in {} range(s)", rowIndexes.size(), sheetId, requests.size());
+        return rowIndexes.size();
+    }
+
+    private ValueRange rowRange(String sheetName, int startIndex, List<List<Object>> rows) {
+        int firstRow = startIndex + 1; // A1 notation is 1-based
+        int lastRow = startIndex + rows.size();
+        return new ValueRange()
+                .setRange(sheetName + "!A" + firstRow + ":C" + lastRow)
+                .setValues(rows);
+    }
+
+    private Request deleteRequest(int sheetId, int startIndex, int endIndex) {
+        return new Request().setDeleteDimension(new DeleteDimensionRequest()
+                .setRange(new DimensionRange()
+                        .setSheetId(sheetId)
+                        .setDimension("ROWS")
+                        .setStartIndex(startIndex)
+                        .setEndIndex(endIndex)));
+    }
+}
@@ -0,0 +1,87 @@
+package org.rkanaje.expense.ai.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.repository.JdbcExpenseRepository;
+import org.rkanaje.expense.ai.repository.SheetsExpenseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the {@code Expense_<year>} sheets in step with the database when the database is
+ * the primary expense store. Changed years are queued and mirrored in the background, so
+ * several writes to the same year cost a single sheet update. On startup an empty database
+ * is seeded from the existing sheets.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "expense.store.type", havingValue = "jdbc")
+public class SheetsMirrorReplicator {
+
+    private final JdbcExpenseRepository jdbcRepository;
+    private final SheetsExpenseRepository sheetsRepository;
+    private final SheetTabRegistry tabRegistry;
+    private final ExpenseYearCache yearCache;
+
+    @Value("${expense.store.jdbc.seed-from-sheets:true}")
+    private boolean seedFromSheets;
+
+    private final Set<Integer> pendingYears = ConcurrentHashMap.newKeySet();
+
+    @EventListener
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        pendingYears.add(event.getYear());
+    }
+
+    @Scheduled(fixedDelayString = "${expense.store.mirror.interval-ms:5000}")
+    public void mirrorPendingYears() {
+        for (Integer year : new ArrayList<>(pendingYears)) {
+            pendingYears.remove(year);
+            try {
+                sheetsRepository.mirror(year, jdbcRepository.findByYear(year));
+                log.debug("Mirrored expenses for year {} to Google Sheets", year);
+            } catch (Exception e) {
+                // Keep the year queued so the next run retries it
+                pendingYears.add(year);
+                log.warn("Failed to mirror expenses for year {}: {}", year, e.getMessage());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedFromSheets() {
+        if (!seedFromSheets || !jdbcRepository.isEmpty()) {
+            return;
+        }
+        try {
+            List<Integer> years = new ArrayList<>();
+            for (String title : tabRegistry.titles()) {
+                if (title.startsWith(SheetsExpenseRepository.SHEET_PREFIX)) {
+                    try {
+                        years.add(Integer.parseInt(title.substring(SheetsExpenseRepository.SHEET_PREFIX.length())));
+                    } catch (NumberFormatException e) {
+                        log.debug("Skipping sheet {}", title);
+                    }
+                }
+            }
+            for (Integer year : years) {
+                jdbcRepository.upsert(year, sheetsRepository.findByYear(year));
+                yearCache.invalidate(year);
+            }
+            log.info("Seeded expense database from {} sheet(s)", years.size());
+        } catch (IOException e) {
+            log.warn("Failed to seed expense database from Google Sheets: {}", e.getMessage());
+        }
+    }
+}
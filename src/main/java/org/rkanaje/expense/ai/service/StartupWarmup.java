@@ -0,0 +1,169 @@
+package org.rkanaje.expense.ai.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.auth.oauth2.Credential;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.rkanaje.expense.ai.model.ChatEvent;
+import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.tool.DateTool;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pays the first-request costs at startup: loads every configured Ollama model, fetches
+ * the Sheets access token, opens the Sheets connection while loading the current year
+ * into the year cache, and runs the JSON binding of expenses.
+ * Spring Boot reports readiness only after application runners finish, so the
+ * readiness probe stays down until the warm-up is done or {@code expense.warmup.timeout-ms}
+ * passes. The steps run in parallel; a step that fails is logged and does not stop startup,
+ * since the request that needs it will retry.
+ */
+@Slf4j
+@Component
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final TypeReference<List<Expense>> EXPENSES = new TypeReference<>() {
+    };
+    private static final int JSON_ROUNDS = 200;
+
+    private final OllamaApi ollamaApi;
+    private final ModelRouter modelRouter;
+    private final Credential credential;
+    private final ExpenseService expenseService;
+    private final DateTool dateTool;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long timeoutMillis;
+
+    public StartupWarmup(OllamaApi ollamaApi,
+                         ModelRouter modelRouter,
+                         Credential credential,
+                         ExpenseService expenseService,
+                         DateTool dateTool,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${expense.warmup.enabled:true}") boolean enabled,
+                         @Value("${expense.warmup.timeout-ms:120000}") long timeoutMillis) {
+        this.ollamaApi = ollamaApi;
+        this.modelRouter = modelRouter;
+        this.credential = credential;
+        this.expenseService = expenseService;
+        this.dateTool = dateTool;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> steps = new ArrayList<>();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            for (OllamaApi.ChatRequest request : modelLoads()) {
+                steps.add(step("ollama:" + request.model(), () -> ollamaApi.chat(request), executor));
+            }
+            steps.add(step("sheets", this::warmSheets, executor));
+            steps.add(step("json", this::warmJson, executor));
+
+            CompletableFuture.allOf(steps.toArray(CompletableFuture[]::new)).get(timeoutMillis, TimeUnit.MILLISECONDS);
+            log.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (TimeoutException e) {
+            log.warn("Warm-up did not finish within {} ms, reporting readiness anyway", timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Steps log their own failures and never complete exceptionally
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns one empty chat request per distinct model, which makes Ollama load the
+     * model and keep it for the profile's keep-alive.
+     */
+    private List<OllamaApi.ChatRequest> modelLoads() {
+        Set<String> models = new LinkedHashSet<>();
+        List<OllamaApi.ChatRequest> requests = new ArrayList<>();
+        for (ModelRouter.Profile profile : modelRouter.profiles()) {
+            String model = profile.getOptions().getModel();
+            if (models.add(model)) {
+                requests.add(OllamaApi.ChatRequest.builder(model)
+                        .messages(List.of())
+                        .stream(false)
+                        .keepAlive(profile.getOptions().getKeepAlive())
+                        .build());
+            }
+        }
+        return requests;
+    }
+
+    private void warmSheets() {
+        // The token first, so the sheet read does not fetch it itself
+        try {
+            if (credential.getAccessToken() == null) {
+                credential.refreshToken();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        expenseService.getYear(LocalDate.parse(dateTool.getDate()).getYear());
+    }
+
+    private void warmJson() {
+        List<Expense> expenses = List.of(new Expense(4.5, "coffee", "2025-01-01"), new Expense(12, "lunch", "2025-01-02"));
+        try {
+            for (int i = 0; i < JSON_ROUNDS; i++) {
+                objectMapper.readValue(objectMapper.writeValueAsString(expenses), EXPENSES);
+                objectMapper.writeValueAsString(ChatEvent.token("warm-up"));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<Void> step(String name, Runnable work, ExecutorService executor) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            String result = "success";
+            try {
+                work.run();
+                log.info("Warm-up step {} took {} ms", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (RuntimeException e) {
+                result = "failure";
+                log.warn("Warm-up step {} failed: {}", name, e.getMessage());
+            }
+            Timer.builder("expense.warmup.duration")
+                    .tag("step", name.contains(":") ? name.substring(0, name.indexOf(':')) : name)
+                    .tag("result", result)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }, executor);
+    }
+}
@@ -0,0 +1,36 @@
+package org.rkanaje.expense.ai.service;
+
+/**
+ * Token bucket rate limiter. Tokens refill continuously at a fixed rate up to the bucket
+ * capacity. A caller that finds the bucket empty reserves the next token and is told how
+ * long to wait for it, so waiting callers are served in order.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param permitsPerMinute Sustained rate
+     * @param capacity         Number of permits that can be taken at once after an idle period
+     */
+    TokenBucket(double permitsPerMinute, double capacity) {
+        this.capacity = capacity;
+        this.tokensPerNano = permitsPerMinute / 60_000_000_000d;
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes a token, returning the nanoseconds the caller must wait before using it.
+     */
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+}
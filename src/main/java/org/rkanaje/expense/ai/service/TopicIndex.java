@@ -0,0 +1,175 @@
+package org.rkanaje.expense.ai.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dictionary of the distinct topics of a year with a trigram index over their
+ * lower-cased form. A case-insensitive substring lookup intersects the postings of the
+ * query's trigrams and only verifies the remaining candidates, so it does not scan
+ * every topic. The index is immutable; {@link #plus(Collection)} returns a copy with
+ * new topics appended and keeps the ids of the existing ones.
+ */
+public final class TopicIndex {
+
+    static final TopicIndex EMPTY = new TopicIndex(new String[0], new String[0], Map.of(), Map.of(), Map.of());
+
+    private final String[] topics;
+    private final String[] normalizedTopics;
+    private final Map<String, Integer> ids;
+    private final Map<String, int[]> idsByNormalizedTopic;
+    private final Map<Long, int[]> trigrams;
+
+    private TopicIndex(String[] topics, String[] normalizedTopics, Map<String, Integer> ids,
+                       Map<String, int[]> idsByNormalizedTopic, Map<Long, int[]> trigrams) {
+        this.topics = topics;
+        this.normalizedTopics = normalizedTopics;
+        this.ids = ids;
+        this.idsByNormalizedTopic = idsByNormalizedTopic;
+        this.trigrams = trigrams;
+    }
+
+    public int size() {
+        return topics.length;
+    }
+
+    public String topic(int id) {
+        return topics[id];
+    }
+
+    public String normalizedTopic(int id) {
+        return normalizedTopics[id];
+    }
+
+    /**
+     * Returns the id of the topic, or -1 if it is not in the dictionary.
+     */
+    public int idOf(String topic) {
+        Integer id = ids.get(topic);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the ids of all topics equal to the given one, ignoring case.
+     */
+    public int[] idsIgnoringCase(String topic) {
+        return idsByNormalizedTopic.getOrDefault(normalize(topic), new int[0]);
+    }
+
+    /**
+     * Returns the ids of all topics containing the given text, ignoring case, in ascending order.
+     */
+    public int[] idsContaining(String text) {
+        String query = normalize(text);
+        if (query.length() < 3) {
+            // Too short for a trigram, check the dictionary directly
+            int[] matches = new int[topics.length];
+            int count = 0;
+            for (int id = 0; id < topics.length; id++) {
+                if (normalizedTopics[id].contains(query)) {
+                    matches[count++] = id;
+                }
+            }
+            return Arrays.copyOf(matches, count);
+        }
+
+        // Intersect the postings of every trigram of the query
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            int[] postings = trigrams.get(trigram(query, i));
+            if (postings == null) {
+                return new int[0];
+            }
+            candidates = candidates == null ? postings : intersect(candidates, postings);
+            if (candidates.length == 0) {
+                return candidates;
+            }
+        }
+
+        // Trigram hits are only candidates; confirm the substring
+        int[] matches = new int[candidates.length];
+        int count = 0;
+        for (int id : candidates) {
+            if (normalizedTopics[id].contains(query)) {
+                matches[count++] = id;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Returns an index that also contains the given topics. Returns this index if all
+     * topics are already known.
+     */
+    public TopicIndex plus(Collection<String> newTopics) {
+        Set<String> unique = new LinkedHashSet<>(newTopics);
+        unique.removeAll(ids.keySet());
+        List<String> missing = new ArrayList<>(unique);
+        if (missing.isEmpty()) {
+            return this;
+        }
+
+        String[] allTopics = Arrays.copyOf(topics, topics.length + missing.size());
+        String[] allNormalized = Arrays.copyOf(normalizedTopics, allTopics.length);
+        Map<String, Integer> allIds = new HashMap<>(ids);
+        Map<String, int[]> allByNormalized = new HashMap<>(idsByNormalizedTopic);
+        Map<Long, int[]> allTrigrams = new HashMap<>(trigrams);
+
+        for (int i = 0; i < missing.size(); i++) {
+            int id = topics.length + i;
+            String topic = missing.get(i);
+            String normalized = normalize(topic);
+            allTopics[id] = topic;
+            allNormalized[id] = normalized;
+            allIds.put(topic, id);
+            allByNormalized.merge(normalized, new int[]{id}, TopicIndex::append);
+            for (int j = 0; j + 3 <= normalized.length(); j++) {
+                int[] postings = allTrigrams.get(trigram(normalized, j));
+                // A topic can repeat a trigram, postings hold each id once
+                if (postings == null || postings[postings.length - 1] != id) {
+                    allTrigrams.put(trigram(normalized, j), postings == null ? new int[]{id} : append(postings, new int[]{id}));
+                }
+            }
+        }
+        return new TopicIndex(allTopics, allNormalized, allIds, allByNormalized, allTrigrams);
+    }
+
+    static String normalize(String topic) {
+        return topic.toLowerCase();
+    }
+
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    private static int[] append(int[] left, int[] right) {
+        int[] result = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, result, left.length, right.length);
+        return result;
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
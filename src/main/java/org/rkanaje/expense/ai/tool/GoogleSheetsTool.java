@@ -1,18 +1,20 @@
 package org.rkanaje.expense.ai.tool;
 
-import com.google.api.services.sheets.v4.Sheets;
-import com.google.api.services.sheets.v4.model.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.model.ExpenseSummary;
+import org.rkanaje.expense.ai.repository.SheetsExpenseRepository;
+import org.rkanaje.expense.ai.repository.UpsertResult;
+import org.rkanaje.expense.ai.service.ExpenseChange;
+import org.rkanaje.expense.ai.service.ExpenseQuery;
+import org.rkanaje.expense.ai.service.ExpenseService;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.Year;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -25,14 +27,11 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class GoogleSheetsTool {
 
-    private static final String SHEET_PREFIX = "Expense_";
-    private static final String RANGE = "A:C"; // Columns: Date, Amount, Description
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final List<Object> HEADER_ROW = List.of("Date", "Amount", "Description");
+    private static final String SHEET_PREFIX = SheetsExpenseRepository.SHEET_PREFIX;
+    // Expenses listed in a summary; the rest are only counted
+    private static final int MAX_LISTED = 10;
 
-    private final Sheets sheetsService;
-    private final String spreadsheetId;
-    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private final ExpenseService expenseService;
 
     @Tool(name = "updateExpensesByYear",
             description = "Manage expenses in the Google Sheet, organized by year. Can add/update and delete expenses in a single operation.")
@@ -55,9 +54,9 @@ public class GoogleSheetsTool {
                 String sheetName = SHEET_PREFIX + year;
 
                 try {
-                    ensureSheetExists(sheetName);
-                    String result = updateYearSheet(sheetName, entry.getValue());
-                    results.put(year, "Updated: " + result);
+                    UpsertResult result = expenseService.addOrUpdateExpenses(Integer.parseInt(year), entry.getValue());
+                    results.put(year, "Updated: " + String.format("Updated %d and added %d expenses in %s",
+                            result.getUpdated(), result.getAdded(), sheetName));
                 } catch (Exception e) {
                     String error = String.format("Failed to update sheet for year %s: %s", year, e.getMessage());
                     log.error(error, e);
@@ -79,7 +78,7 @@ public class GoogleSheetsTool {
                 String sheetName = SHEET_PREFIX + year;
 
                 try {
-                    int deletedCount = deleteExpensesFromSheet(sheetName, entry.getValue());
+                    int deletedCount = expenseService.deleteExpenses(Integer.parseInt(year), entry.getValue());
                     String result = String.format("Deleted %d expense(s)", deletedCount);
                     if (results.containsKey(year)) {
                         results.put(year, results.get(year) + " | " + result);
@@ -103,198 +102,6 @@ public class GoogleSheetsTool {
                 .collect(Collectors.joining("\n"));
     }
 
-    /**
-     * Deletes expenses from the specified sheet that match the given expense dates and topics.
-     *
-     * @param sheetName        The name of the sheet to delete from
-     * @param expensesToDelete List of expenses to delete (only date and topic are used for matching)
-     * @return Number of expenses deleted
-     */
-    private int deleteExpensesFromSheet(String sheetName, List<Expense> expensesToDelete) throws IOException {
-        if (expensesToDelete == null || expensesToDelete.isEmpty()) {
-            return 0;
-        }
-
-        // Get all values from the sheet
-        ValueRange response = sheetsService.spreadsheets().values()
-                .get(spreadsheetId, sheetName + "!" + RANGE)
-                .execute();
-
-        List<List<Object>> values = response.getValues();
-        if (values == null || values.isEmpty()) {
-            return 0;
-        }
-
-        // Create a set of (date, topic) pairs to delete for faster lookup
-        Set<String> deleteKeys = expensesToDelete.stream()
-                .map(e -> e.getDate() + "|" + e.getTopic().toLowerCase())
-                .collect(Collectors.toSet());
-
-        // Keep only rows that don't match any of the delete criteria
-        List<List<Object>> updatedValues = new ArrayList<>();
-        updatedValues.add(values.get(0)); // Keep header
-
-        int deletedCount = 0;
-        for (int i = 1; i < values.size(); i++) {
-            List<Object> row = values.get(i);
-            if (row.size() >= 3) { // Ensure we have date, amount, and topic
-                String date = row.get(0).toString();
-                String topic = row.get(2).toString().toLowerCase();
-                String rowKey = date + "|" + topic;
-
-                if (!deleteKeys.contains(rowKey)) {
-                    updatedValues.add(row);
-                } else {
-                    deletedCount++;
-                }
-            } else {
-                updatedValues.add(row); // Keep malformed rows
-            }
-        }
-
-        // Only update if there were deletions
-        if (deletedCount > 0) {
-            // Clear the sheet and write back the remaining rows
-            sheetsService.spreadsheets().values()
-                    .clear(spreadsheetId, sheetName + "!" + RANGE, new ClearValuesRequest())
-                    .execute();
-
-            if (!updatedValues.isEmpty()) {
-                ValueRange body = new ValueRange().setValues(updatedValues);
-                sheetsService.spreadsheets().values()
-                        .update(spreadsheetId, sheetName + "!" + RANGE, body)
-                        .setValueInputOption("USER_ENTERED")
-                        .execute();
-            }
-        }
-
-        return deletedCount;
-    }
-
-    private void ensureSheetExists(String sheetName) throws IOException {
-        // Get all sheets
-        List<Sheet> sheets = sheetsService.spreadsheets()
-                .get(spreadsheetId)
-                .execute()
-                .getSheets();
-
-        // Check if sheet exists
-        boolean sheetExists = sheets.stream()
-                .anyMatch(sheet -> sheet.getProperties().getTitle().equals(sheetName));
-
-        if (!sheetExists) {
-            // Create new sheet
-            AddSheetRequest addSheetRequest = new AddSheetRequest()
-                    .setProperties(new SheetProperties().setTitle(sheetName));
-
-            BatchUpdateSpreadsheetRequest batchUpdateRequest = new BatchUpdateSpreadsheetRequest()
-                    .setRequests(Collections.singletonList(
-                            new Request().setAddSheet(new AddSheetRequest()
-                                    .setProperties(new SheetProperties().setTitle(sheetName)))));
-
-            sheetsService.spreadsheets()
-                    .batchUpdate(spreadsheetId, batchUpdateRequest)
-                    .execute();
-
-            // Add header row to the new sheet
-            ValueRange headerBody = new ValueRange()
-                    .setValues(Collections.singletonList(HEADER_ROW));
-
-            sheetsService.spreadsheets().values()
-                    .update(spreadsheetId, sheetName + "!A1", headerBody)
-                    .setValueInputOption("USER_ENTERED")
-                    .execute();
-
-            log.info("Created new sheet: {}", sheetName);
-        }
-    }
-
-    private String updateYearSheet(String sheetName, List<Expense> expenses) throws IOException {
-        if (expenses == null || expenses.isEmpty()) {
-            return "No expenses to update";
-        }
-
-        // Get all existing data
-        ValueRange response = sheetsService.spreadsheets().values()
-                .get(spreadsheetId, sheetName + "!" + RANGE)
-                .execute();
-
-        List<List<Object>> values = response.getValues();
-        if (values == null || values.isEmpty()) {
-            values = new ArrayList<>();
-            values.add(HEADER_ROW); // Add header if sheet is empty
-        }
-
-        // Create a map of existing expenses for quick lookup (date|topic -> row index)
-        Map<String, Integer> existingExpenses = new HashMap<>();
-        for (int i = 1; i < values.size(); i++) {
-            List<Object> row = values.get(i);
-            if (row.size() >= 3) { // Ensure we have date, amount, and topic
-                String date = row.get(0).toString();
-                String topic = row.get(2).toString().toLowerCase();
-                existingExpenses.put(date + "|" + topic, i);
-            }
-        }
-
-        int updatedCount = 0;
-        int addedCount = 0;
-
-        // Process each expense to add/update
-        for (Expense expense : expenses) {
-            String key = expense.getDate() + "|" + expense.getTopic().toLowerCase();
-            List<Object> newRow = createRowData(expense);
-
-            if (existingExpenses.containsKey(key)) {
-                // Update existing row
-                int rowIndex = existingExpenses.get(key);
-                values.set(rowIndex, newRow);
-                updatedCount++;
-            } else {
-                // Add new row
-                values.add(newRow);
-                addedCount++;
-            }
-        }
-
-        // Clear the sheet and write back all rows
-        sheetsService.spreadsheets().values()
-                .clear(spreadsheetId, sheetName + "!" + RANGE, new ClearValuesRequest())
-                .execute();
-
-        // Only write back if we have data
-        if (!values.isEmpty()) {
-            ValueRange body = new ValueRange().setValues(values);
-            sheetsService.spreadsheets().values()
-                    .update(spreadsheetId, sheetName + "!A1", body)
-                    .setValueInputOption("USER_ENTERED")
-                    .execute();
-        }
-
-        log.info("Updated sheet {}: {} updated, {} added", sheetName, updatedCount, addedCount);
-        return String.format("Updated %d and added %d expenses in %s", updatedCount, addedCount, sheetName);
-    }
-
-    /**
-     * Creates a single row of data from an Expense object
-     */
-    private List<Object> createRowData(Expense expense) {
-        List<Object> row = new ArrayList<>();
-        // Format: Date, Amount, Description
-        try {
-            // Ensure date is properly formatted
-            String formattedDate = expense.getDate() != null 
-                ? LocalDate.parse(expense.getDate()).format(DATE_FORMATTER)
-                : LocalDate.now().format(DATE_FORMATTER);
-            row.add(formattedDate);
-            row.add(expense.getAmount());
-            row.add(expense.getTopic());
-        } catch (Exception e) {
-            log.error("Error formatting expense data: {}", expense, e);
-            throw new IllegalArgumentException("Invalid expense data format");
-        }
-        return row;
-    }
-
     /**
      * Retrieves expenses matching the specified criteria.
      * Year is required. If month is provided, year must be provided.
@@ -327,89 +134,203 @@ public class GoogleSheetsTool {
             throw new IllegalArgumentException("Both year and month must be provided when day is specified");
         }
 
-        // Get the sheet for the specified year
-        String sheetName = SHEET_PREFIX + year;
-        List<Expense> matchingExpenses = new ArrayList<>();
+        // Filter the cached columns of the year
+        return expenseService.findExpenses(year, ExpenseQuery.builder()
+                .month(month)
+                .day(day)
+                .topic(topic)
+                .amount(amount)
+                .build());
+    }
 
-        try {
-            // Check if the sheet exists
-            List<Sheet> sheets = sheetsService.spreadsheets()
-                    .get(spreadsheetId)
-                    .execute()
-                    .getSheets();
+    /**
+     * Deletes the expenses matching the criteria in one step, without the caller first
+     * listing them with {@link #getExpenses}.
+     *
+     * @param year   The year to delete from (e.g., 2025) - required
+     * @param month  The month (1-12), requires year - optional
+     * @param day    The day of month (1-31), requires year and month - optional
+     * @param topic  The topic to match (case-insensitive partial match) - optional
+     * @param amount The amount to match - optional
+     * @return The number, total and (up to {@value #MAX_LISTED}) list of deleted expenses
+     * @throws IllegalArgumentException if none of month, day, topic or amount is provided
+     */
+    @Tool(name = "deleteExpensesMatching",
+            description = "Delete all expenses matching the specified criteria in one step and return what was deleted. " +
+                    "Year is required. If day is provided, month must be provided. " +
+                    "At least one of month, day, topic or amount is required.")
+    public String deleteExpensesMatching(
+            @ToolParam(description = "Year to delete from (e.g., 2025)", required = true) Integer year,
+            @ToolParam(description = "Month (1-12), requires year", required = false) Integer month,
+            @ToolParam(description = "Day of month (1-31), requires year and month", required = false) Integer day,
+            @ToolParam(description = "Topic to match (case-insensitive partial match)", required = false) String topic,
+            @ToolParam(description = "Exact amount to match", required = false) Double amount) {
 
-            if (sheets.stream().noneMatch(s -> s.getProperties().getTitle().equals(sheetName))) {
-                return Collections.emptyList(); // No data for this year
+        ExpenseQuery query = query(year, month, day, topic, amount);
+        try {
+            List<Expense> deleted = expenseService.deleteExpensesMatching(year, query);
+            if (deleted.isEmpty()) {
+                return "No matching expenses found in " + year + ".";
             }
+            return summarize("Deleted", deleted);
+        } catch (Exception e) {
+            String error = String.format("Failed to delete expenses from sheet %s: %s", SHEET_PREFIX + year, e.getMessage());
+            log.error(error, e);
+            return "Error: " + error;
+        }
+    }
 
-            // Get all values from the sheet
-            ValueRange response = sheetsService.spreadsheets().values()
-                    .get(spreadsheetId, sheetName + "!" + RANGE)
-                    .execute();
-
-            List<List<Object>> values = response.getValues();
-            if (values == null || values.size() <= 1) {
-                return Collections.emptyList(); // Skip empty sheets or sheets with only header
+    /**
+     * Deletes every expense of a year. Kept apart from {@link #deleteExpensesMatching} so
+     * that a request missing its criteria cannot wipe a year by accident.
+     *
+     * @param year    The year to clear (e.g., 2025) - required
+     * @param confirm Must be true, after the user confirmed deleting the whole year - required
+     * @return The number, total and (up to {@value #MAX_LISTED}) list of deleted expenses
+     */
+    @Tool(name = "deleteAllExpensesOfYear",
+            description = "Delete every expense of a year. Only use this when the user asked to clear the whole year " +
+                    "and confirmed it after being asked; set confirm to true only then.")
+    public String deleteAllExpensesOfYear(
+            @ToolParam(description = "Year to clear (e.g., 2025)", required = true) Integer year,
+            @ToolParam(description = "True once the user confirmed deleting every expense of the year", required = true) Boolean confirm) {
+
+        if (year == null) {
+            throw new IllegalArgumentException("Year must be provided");
+        }
+        if (!Boolean.TRUE.equals(confirm)) {
+            return "Not deleted. Ask the user to confirm deleting every expense of " + year + " first.";
+        }
+        try {
+            List<Expense> deleted = expenseService.deleteAllExpenses(year);
+            if (deleted.isEmpty()) {
+                return "No expenses found in " + year + ".";
             }
+            return summarize("Deleted", deleted);
+        } catch (Exception e) {
+            String error = String.format("Failed to delete expenses from sheet %s: %s", SHEET_PREFIX + year, e.getMessage());
+            log.error(error, e);
+            return "Error: " + error;
+        }
+    }
 
-            // Process each row (skip header)
-            for (int i = 1; i < values.size(); i++) {
-                List<Object> row = values.get(i);
-                if (row.size() < 3) {
-                    continue; // Skip malformed rows
-                }
-
-                try {
-                    String rowDateStr = row.get(0).toString();
-                    String rowAmountStr = row.get(1).toString();
-                    String rowTopic = row.get(2).toString();
-
-                    // Parse amount
-                    double rowAmount;
-                    try {
-                        rowAmount = Double.parseDouble(rowAmountStr);
-                    } catch (NumberFormatException e) {
-                        continue; // Skip rows with invalid amounts
-                    }
-
-                    // Parse date
-                    LocalDate rowDate;
-                    try {
-                        rowDate = LocalDate.parse(rowDateStr, DATE_FORMAT);
-                    } catch (Exception e) {
-                        continue; // Skip rows with invalid dates
-                    }
-
-                    // Check month filter if provided
-                    if (month != null && rowDate.getMonthValue() != month) {
-                        continue;
-                    }
-
-                    // Check day filter if provided
-                    if (day != null && rowDate.getDayOfMonth() != day) {
-                        continue;
-                    }
+    /**
+     * Changes the amount, topic and/or date of the expenses matching the criteria in one
+     * step, without the caller first listing them with {@link #getExpenses}.
+     *
+     * @param year      The year to search (e.g., 2025) - required
+     * @param month     The month (1-12), requires year - optional
+     * @param day       The day of month (1-31), requires year and month - optional
+     * @param topic     The topic to match (case-insensitive partial match) - optional
+     * @param amount    The amount to match - optional
+     * @param newAmount The new amount - optional
+     * @param newTopic  The new topic - optional
+     * @param newDate   The new date in YYYY-MM-DD format - optional
+     * @return The number, total and (up to {@value #MAX_LISTED}) list of updated expenses
+     * @throws IllegalArgumentException if none of month, day, topic or amount is provided
+     */
+    @Tool(name = "updateExpensesMatching",
+            description = "Change the amount, topic and/or date of all expenses matching the specified criteria in one step " +
+                    "and return the updated expenses. Year is required. If day is provided, month must be provided. " +
+                    "At least one of month, day, topic or amount is required. " +
+                    "At least one of newAmount, newTopic or newDate is required.")
+    public String updateExpensesMatching(
+            @ToolParam(description = "Year to search (e.g., 2025)", required = true) Integer year,
+            @ToolParam(description = "Month (1-12), requires year", required = false) Integer month,
+            @ToolParam(description = "Day of month (1-31), requires year and month", required = false) Integer day,
+            @ToolParam(description = "Topic to match (case-insensitive partial match)", required = false) String topic,
+            @ToolParam(description = "Exact amount to match", required = false) Double amount,
+            @ToolParam(description = "New amount", required = false) Double newAmount,
+            @ToolParam(description = "New topic", required = false) String newTopic,
+            @ToolParam(description = "New date in YYYY-MM-DD format", required = false) String newDate) {
+
+        ExpenseQuery query = query(year, month, day, topic, amount);
+        ExpenseChange change = ExpenseChange.builder()
+                .amount(newAmount)
+                .topic(newTopic)
+                .date(newDate)
+                .build();
+        if (change.isEmpty()) {
+            throw new IllegalArgumentException("At least one of newAmount, newTopic or newDate must be provided");
+        }
+        if (newDate != null) {
+            // Fails before anything is changed
+            LocalDate.parse(newDate);
+        }
+        try {
+            List<Expense> updated = expenseService.updateExpensesMatching(year, query, change);
+            if (updated.isEmpty()) {
+                return "No matching expenses found in " + year + ".";
+            }
+            return summarize("Updated", updated);
+        } catch (Exception e) {
+            String error = String.format("Failed to update sheet for year %s: %s", year, e.getMessage());
+            log.error(error, e);
+            return "Error: " + error;
+        }
+    }
 
-                    // Check amount filter if provided
-                    if (amount != null && Math.abs(rowAmount - amount) > 0.001) {
-                        continue;
-                    }
+    /**
+     * Returns the total and count of the expenses of a year, optionally narrowed to a
+     * month and a topic, with breakdowns by month, day and topic.
+     *
+     * @param year  The year to summarize (e.g., 2025) - required
+     * @param month The month to summarize (1-12) - optional
+     * @param topic The topic to match (case-insensitive partial match) - optional
+     * @return The summary of the matching expenses
+     */
+    @Tool(name = "getExpenseSummary",
+            description = "Get the total amount and number of expenses for a year, optionally for one month and/or topic, " +
+                    "with totals per month (or per day when a month is given) and per topic. " +
+                    "Use this instead of adding up the results of getExpenses.")
+    public ExpenseSummary getExpenseSummary(
+            @ToolParam(description = "Year to summarize (e.g., 2025)", required = true) Integer year,
+            @ToolParam(description = "Month to summarize (1-12)", required = false) Integer month,
+            @ToolParam(description = "Topic to match (case-insensitive partial match)", required = false) String topic) {
+
+        if (year == null) {
+            throw new IllegalArgumentException("Year must be provided");
+        }
+        if (month != null && (month < 1 || month > 12)) {
+            throw new IllegalArgumentException("Month must be between 1 and 12");
+        }
+        return expenseService.getSummary(year, month, topic);
+    }
 
-                    // Check topic filter if provided
-                    if (topic != null && !rowTopic.toLowerCase().contains(topic.toLowerCase())) {
-                        continue;
-                    }
+    private static ExpenseQuery query(Integer year, Integer month, Integer day, String topic, Double amount) {
+        if (year == null) {
+            throw new IllegalArgumentException("Year must be provided");
+        }
+        if (day != null && month == null) {
+            throw new IllegalArgumentException("Month must be provided when day is specified");
+        }
+        ExpenseQuery query = ExpenseQuery.builder()
+                .month(month)
+                .day(day)
+                .topic(topic)
+                .amount(amount)
+                .build();
+        if (query.isEmpty()) {
+            throw new IllegalArgumentException("At least one of month, day, topic or amount must be provided");
+        }
+        return query;
+    }
 
-                    // If we get here, all filters passed
-                    matchingExpenses.add(new Expense(rowAmount, rowTopic, rowDate.format(DATE_FORMAT)));
-                } catch (Exception e) {
-                    log.warn("Error processing row {} in sheet {}: {}", i, sheetName, e.getMessage());
-                }
-            }
-        } catch (IOException e) {
-            log.error("Error accessing Google Sheets: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to retrieve expenses: " + e.getMessage(), e);
+    /**
+     * Returns a short summary of the affected expenses, so the model does not have to
+     * read back every row.
+     */
+    private static String summarize(String action, List<Expense> expenses) {
+        double total = expenses.stream().mapToDouble(Expense::getAmount).sum();
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT, "%s %d expense(s) totaling $%.2f:",
+                action, expenses.size(), total));
+        expenses.stream()
+                .limit(MAX_LISTED)
+                .forEach(expense -> summary.append(String.format(Locale.ROOT, "\n- $%.2f %s on %s",
+                        expense.getAmount(), expense.getTopic(), expense.getDate())));
+        if (expenses.size() > MAX_LISTED) {
+            summary.append("\n- and ").append(expenses.size() - MAX_LISTED).append(" more");
         }
-        return matchingExpenses;
+        return summary.toString();
     }
 }
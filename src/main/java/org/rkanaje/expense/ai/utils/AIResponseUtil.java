@@ -4,45 +4,38 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class AIResponseUtil {
+
+    private static final Pattern THINK = Pattern.compile("<think>(.*?)</think>", Pattern.DOTALL);
+    private static final Pattern ESCAPED_TAG_CHARS = Pattern.compile("(?i)\\\\u00(3C|3E|2F)");
+
     public static String removeThinkTags(String text) {
         if (text == null) {
             return null;
         }
-        // Regex to match <think> tags and everything in between, including newlines
-
-        if (text.contains("\\u003C".toLowerCase())) {
-            text = text.replaceAll("(?i)\\\\u003C", "<");
-            text = text.replaceAll("(?i)\\\\u003E", ">");
-            text = text.replaceAll("(?i)\\\\u002F", "/");
-        }
-
-        // String regex = "<think>(?:.|\n)*?</think>";
-        // Pattern pattern = Pattern.compile(regex);
-        Pattern pattern = Pattern.compile("<think>.*?</think>", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(text);
-
-        return matcher.replaceAll("");
+        // Remove <think> tags and everything in between, including newlines
+        return THINK.matcher(unescapeTagChars(text)).replaceAll("");
     }
 
     public static String getThinkTags(String text) {
         if (text == null) {
             return null;
         }
-
-        if (text.contains("\\u003C".toLowerCase())) {
-            text = text.replaceAll("(?i)\\\\u003C", "<");
-            text = text.replaceAll("(?i)\\\\u003E", ">");
-            text = text.replaceAll("(?i)\\\\u002F", "/");
-        }
-        // Regex to match <think> tags and everything in between, including newlines
-        // Pattern pattern = Pattern.compile("(?s)<think>(.*?)</think>");
-        Pattern pattern = Pattern.compile("<think>.*?</think>", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(text);
-
+        Matcher matcher = THINK.matcher(unescapeTagChars(text));
         if (matcher.find()) {
             return matcher.group(1);
         } else {
             return null;
         }
     }
+
+    private static String unescapeTagChars(String text) {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        return ESCAPED_TAG_CHARS.matcher(text).replaceAll(match -> switch (match.group(1).toUpperCase()) {
+            case "3C" -> "<";
+            case "3E" -> ">";
+            default -> "/";
+        });
+    }
 }
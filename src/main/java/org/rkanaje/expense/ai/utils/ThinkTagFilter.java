@@ -0,0 +1,92 @@
+package org.rkanaje.expense.ai.utils;
+
+/**
+ * Incremental counterpart of {@link AIResponseUtil#removeThinkTags(String)} for streamed
+ * responses. Chunks are fed in order with {@link #accept(CharSequence)}, which returns
+ * the visible text that can be emitted right away. A tag split across chunks is held
+ * back until the next chunk decides it, so only a few characters are ever buffered.
+ * Leading whitespace of the visible text is dropped, like trimming the full response.
+ * Instances are stateful and not thread-safe; use one per response.
+ */
+public final class ThinkTagFilter {
+
+    private static final String OPEN = "<think>";
+    private static final String CLOSE = "</think>";
+
+    private final StringBuilder pending = new StringBuilder();
+    private boolean inThink;
+    private boolean started;
+
+    /**
+     * Returns the visible part of the chunk, possibly empty.
+     */
+    public String accept(CharSequence chunk) {
+        pending.append(chunk);
+        StringBuilder visible = new StringBuilder(pending.length());
+        int i = 0;
+        while (i < pending.length()) {
+            String tag = inThink ? CLOSE : OPEN;
+            int at = pending.indexOf(tag, i);
+            if (at >= 0) {
+                if (!inThink) {
+                    append(visible, i, at);
+                }
+                i = at + tag.length();
+                inThink = !inThink;
+                continue;
+            }
+            // Keep back a suffix that could be the start of the tag
+            int end = pending.length() - partialTagLength(tag, i);
+            if (!inThink) {
+                append(visible, i, end);
+            }
+            i = end;
+            break;
+        }
+        pending.delete(0, i);
+        return visible.toString();
+    }
+
+    /**
+     * Returns the text held back at the end of the response. An unterminated think
+     * segment is dropped.
+     */
+    public String finish() {
+        StringBuilder visible = new StringBuilder();
+        if (!inThink) {
+            append(visible, 0, pending.length());
+        }
+        pending.setLength(0);
+        return visible.toString();
+    }
+
+    private void append(StringBuilder visible, int from, int to) {
+        if (!started) {
+            while (from < to && Character.isWhitespace(pending.charAt(from))) {
+                from++;
+            }
+            started = from < to;
+        }
+        visible.append(pending, from, to);
+    }
+
+    private int partialTagLength(String tag, int from) {
+        int max = Math.min(tag.length() - 1, pending.length() - from);
+        for (int length = max; length > 0; length--) {
+            if (endsWith(tag, length)) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    private boolean endsWith(String tag, int length) {
+        int offset = pending.length() - length;
+        for (int i = 0; i < length; i++) {
+            if (pending.charAt(offset + i) != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
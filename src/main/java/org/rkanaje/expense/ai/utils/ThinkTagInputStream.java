@@ -0,0 +1,201 @@
+package org.rkanaje.expense.ai.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Removes {@code <think>...</think>} segments from a JSON response body while it is
+ * read, without buffering the body. The angle brackets and the slash of a tag are
+ * recognized both literally and in their {@code \u003c}, {@code \u003e} and
+ * {@code \u002f} escaped forms, which is how Ollama encodes them inside JSON
+ * strings. Everything outside think segments is passed through byte for byte.
+ * Only the raw bytes of a partially matched tag are held back, so memory use is
+ * fixed regardless of the body size.
+ */
+public class ThinkTagInputStream extends InputStream {
+
+    private static final byte[] OPEN = {'<', 't', 'h', 'i', 'n', 'k', '>'};
+    private static final byte[] CLOSE = {'<', '/', 't', 'h', 'i', 'n', 'k', '>'};
+    // A backslash, 'u' and four hex digits
+    private static final int ESCAPE_LENGTH = 6;
+    // Not a tag character, never matches
+    private static final byte OPAQUE = 0;
+
+    private final InputStream in;
+
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private final byte[] output = new byte[buffer.length + 64];
+    private int outputPosition;
+    private int outputLimit;
+
+    // Raw bytes of the partially matched tag, at most the escaped form of "</think"
+    private final byte[] partial = new byte[32];
+    private int partialLength;
+    private int matched;
+    private boolean inThink;
+
+    public ThinkTagInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (outputPosition == outputLimit && !fill()) {
+            return -1;
+        }
+        return output[outputPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (outputPosition == outputLimit && !fill()) {
+            return -1;
+        }
+        int count = Math.min(len, outputLimit - outputPosition);
+        System.arraycopy(output, outputPosition, b, off, count);
+        outputPosition += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return outputLimit - outputPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Refills the output buffer. Returns false once the body is exhausted.
+     */
+    private boolean fill() throws IOException {
+        outputPosition = 0;
+        outputLimit = 0;
+        while (outputLimit == 0) {
+            if (position == limit || !eof && limit - position < ESCAPE_LENGTH) {
+                readMore();
+            }
+            if (position == limit) {
+                // A partial tag at the end of the body was plain text after all
+                if (!inThink) {
+                    emitPartial();
+                }
+                partialLength = 0;
+                matched = 0;
+                return outputLimit > 0;
+            }
+            while (position < limit && step()) {
+                // Each step consumes at least one byte
+            }
+        }
+        return true;
+    }
+
+    private void readMore() throws IOException {
+        if (eof) {
+            return;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * Consumes one character, or returns false if more input is needed to decode it.
+     */
+    private boolean step() {
+        int available = limit - position;
+        int length = 1;
+        byte symbol = buffer[position];
+        if (symbol == '\\') {
+            if (available < 2 && !eof) {
+                return false;
+            }
+            if (available >= 2 && buffer[position + 1] == 'u') {
+                if (available < ESCAPE_LENGTH && !eof) {
+                    return false;
+                }
+                length = Math.min(ESCAPE_LENGTH, available);
+                symbol = length == ESCAPE_LENGTH ? unescape(position) : OPAQUE;
+            } else {
+                // Any other escape, including an escaped backslash, is taken as a whole
+                length = Math.min(2, available);
+                symbol = OPAQUE;
+            }
+        }
+
+        byte[] tag = inThink ? CLOSE : OPEN;
+        if (symbol != OPAQUE && symbol == tag[matched]) {
+            hold(length);
+            if (++matched == tag.length) {
+                inThink = !inThink;
+                matched = 0;
+                partialLength = 0;
+            }
+        } else {
+            if (matched > 0) {
+                if (!inThink) {
+                    emitPartial();
+                }
+                partialLength = 0;
+                matched = 0;
+            }
+            // Both tags start with '<', which can only start a new match
+            if (symbol == '<') {
+                hold(length);
+                matched = 1;
+            } else if (!inThink) {
+                emit(buffer, position, length);
+            }
+        }
+        position += length;
+        return true;
+    }
+
+    private byte unescape(int at) {
+        if (buffer[at + 2] != '0' || buffer[at + 3] != '0') {
+            return OPAQUE;
+        }
+        byte high = buffer[at + 4];
+        byte low = buffer[at + 5];
+        if (high == '3' && (low == 'c' || low == 'C')) {
+            return '<';
+        }
+        if (high == '3' && (low == 'e' || low == 'E')) {
+            return '>';
+        }
+        if (high == '2' && (low == 'f' || low == 'F')) {
+            return '/';
+        }
+        return OPAQUE;
+    }
+
+    private void hold(int length) {
+        System.arraycopy(buffer, position, partial, partialLength, length);
+        partialLength += length;
+    }
+
+    private void emitPartial() {
+        emit(partial, 0, partialLength);
+    }
+
+    private void emit(byte[] source, int from, int length) {
+        System.arraycopy(source, from, output, outputLimit, length);
+        outputLimit += length;
+    }
+}
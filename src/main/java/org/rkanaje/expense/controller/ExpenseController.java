@@ -1,14 +1,44 @@
 package org.rkanaje.expense.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.model.ExpensePage;
+import org.rkanaje.expense.ai.model.ExpenseSummary;
+import org.rkanaje.expense.ai.model.ImportResult;
+import org.rkanaje.expense.ai.service.ExpenseCursor;
+import org.rkanaje.expense.ai.service.ExpenseImportService;
 import org.rkanaje.expense.ai.service.ExpenseService;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.Year;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @CrossOrigin(origins = "*")
@@ -17,18 +47,300 @@ import java.util.List;
 @Slf4j
 public class ExpenseController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    // Bounds the number of year sheets a single range request reads
+    private static final int MAX_RANGE_YEARS = 20;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int FLUSH_EVERY_ROWS = 256;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    // Seconds a client is asked to wait when the expense store cannot be read
+    private static final String RETRY_AFTER_SECONDS = "30";
+
     private final ExpenseService expenseService;
+    private final ExpenseImportService expenseImportService;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * Returns the expenses of a year, or of a date range when {@code from} or {@code to} is given.
+     * A range without {@code from} starts at the beginning of the year of {@code to};
+     * a range without {@code to} ends at the end of the year of {@code from}.
+     * With {@code limit} or {@code after} the result is returned as an {@link ExpensePage}.
+     */
     @GetMapping
-    public ResponseEntity<List<Expense>> getExpenses(
-            @RequestParam(required = false) Integer year) {
+    public ResponseEntity<?> getExpenses(
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
         try {
+            if (limit != null || after != null) {
+                if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+                    return ResponseEntity.badRequest().build();
+                }
+                ExpenseCursor cursor = ExpenseCursor.decode(after);
+                Iterator<Expense> expenses = iterate(year, from, to, cursor);
+                return ResponseEntity.ok(page(expenses, cursor, limit != null ? limit : MAX_PAGE_SIZE));
+            }
+
+            if (from != null || to != null) {
+                LocalDate start = rangeStart(from, to);
+                return ResponseEntity.ok(expenseService.getExpensesBetween(start, rangeEnd(start, from, to)));
+            }
+
             int targetYear = (year != null) ? year : Year.now().getValue();
             List<Expense> expenses = expenseService.getExpensesByYear(targetYear);
             return ResponseEntity.ok(expenses);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid expense request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (UncheckedIOException e) {
+            log.error("Error reading expenses: {}", e.getMessage(), e);
+            return unavailable();
         } catch (Exception e) {
             log.error("Error fetching expenses: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Streams the expenses as newline-delimited JSON, one expense per line, writing each
+     * row as it is read so memory use does not grow with the number of expenses.
+     * Takes the same parameters as {@link #getExpenses}; without {@code limit} all
+     * matching expenses are streamed.
+     */
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamExpenses(
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+        Iterator<Expense> expenses;
+        try {
+            if (limit != null && limit < 1) {
+                return ResponseEntity.badRequest().build();
+            }
+            expenses = iterate(year, from, to, ExpenseCursor.decode(after));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid expense request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (UncheckedIOException e) {
+            log.error("Error reading expenses: {}", e.getMessage(), e);
+            return unavailable();
+        }
+
+        int maxRows = limit != null ? limit : Integer.MAX_VALUE;
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                int rows = 0;
+                while (rows < maxRows && expenses.hasNext()) {
+                    generator.writeObject(expenses.next());
+                    generator.writeRaw('\n');
+                    if (++rows % FLUSH_EVERY_ROWS == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * Exports the expenses dated between {@code from} and {@code to} as a CSV file that
+     * {@link #importExpenses} accepts. Rows are written to the response as each year sheet
+     * is read, grouped by year sheet and sorted by date within each, so the download starts
+     * after the first year is loaded and memory does not grow with the range. Without a
+     * range the current year is exported.
+     *
+     * @param format Only {@code csv} is supported
+     * @param gzip   Whether to compress the file with gzip
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        LocalDate start;
+        LocalDate end;
+        Iterator<Expense> expenses;
+        try {
+            if (!"csv".equalsIgnoreCase(format)) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (from == null && to == null) {
+                start = Year.now().atDay(1);
+                end = start.withMonth(12).withDayOfMonth(31);
+            } else {
+                start = rangeStart(from, to);
+                end = rangeEnd(start, from, to);
+            }
+            expenses = expenseService.iterateExpensesByYear(start, end);
+            // Load the first year before committing the response so read errors still return a status
+            expenses.hasNext();
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid export request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (UncheckedIOException e) {
+            log.error("Error reading expenses to export: {}", e.getMessage(), e);
+            return unavailable();
+        } catch (Exception e) {
+            log.error("Error exporting expenses: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE, true) : out;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+            try (CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT)) {
+                printer.printRecord("date", "amount", "topic");
+                int rows = 0;
+                while (expenses.hasNext()) {
+                    Expense expense = expenses.next();
+                    printer.printRecord(expense.getDate(),
+                            BigDecimal.valueOf(expense.getAmount()).setScale(2, RoundingMode.HALF_UP).toPlainString(),
+                            expense.getTopic());
+                    if (++rows % FLUSH_EVERY_ROWS == 0) {
+                        printer.flush();
+                    }
+                }
+                log.info("Exported {} expense(s) between {} and {}", rows, start, end);
+            }
+        };
+        String fileName = "expenses_" + start + "_" + end + (gzip ? ".csv.gz" : ".csv");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(TEXT_CSV_VALUE + ";charset=UTF-8");
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Imports expenses from a UTF-8 CSV request body (see {@link ExpenseImportService} for
+     * the format) and returns the final report.
+     *
+     * @param dateFormat Pattern of the date column, e.g. {@code MM/dd/yyyy}; defaults to {@code yyyy-MM-dd}
+     */
+    @PostMapping(value = "/import", consumes = {TEXT_CSV_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<ImportResult> importExpenses(
+            InputStream csv,
+            @RequestParam(required = false) String dateFormat) {
+        try {
+            ImportResult result = expenseImportService.importCsv(
+                    new InputStreamReader(csv, StandardCharsets.UTF_8), dateFormat, progress -> { });
+            return result.getError() == null
+                    ? ResponseEntity.ok(result)
+                    : ResponseEntity.internalServerError().body(result);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid import: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ImportResult.builder().done(true).error(e.getMessage()).build());
+        } catch (Exception e) {
+            log.error("Error importing expenses: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Same as {@link #importExpenses}, but streams a progress report after every written
+     * chunk as newline-delimited JSON, followed by the final report.
+     */
+    @PostMapping(value = "/import", consumes = {TEXT_CSV_VALUE, MediaType.TEXT_PLAIN_VALUE},
+            produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importExpensesWithProgress(
+            InputStream csv,
+            @RequestParam(required = false) String dateFormat) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                ImportResult result;
+                try {
+                    result = expenseImportService.importCsv(new InputStreamReader(csv, StandardCharsets.UTF_8),
+                            dateFormat, progress -> writeLine(generator, progress));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Invalid import: {}", e.getMessage());
+                    result = ImportResult.builder().done(true).error(e.getMessage()).build();
+                }
+                writeLine(generator, result);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<ExpenseSummary> getSummary(
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(required = false) String topic) {
+        if (month != null && (month < 1 || month > 12)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            int targetYear = (year != null) ? year : Year.now().getValue();
+            return ResponseEntity.ok(expenseService.getSummary(targetYear, month, topic));
+        } catch (UncheckedIOException e) {
+            log.error("Error reading expenses to summarize: {}", e.getMessage(), e);
+            return unavailable();
+        } catch (Exception e) {
+            log.error("Error summarizing expenses: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private Iterator<Expense> iterate(Integer year, LocalDate from, LocalDate to, ExpenseCursor after) {
+        if (from != null || to != null) {
+            LocalDate start = rangeStart(from, to);
+            return expenseService.iterateExpensesBetween(start, rangeEnd(start, from, to), after);
+        }
+        int targetYear = (year != null) ? year : Year.now().getValue();
+        return expenseService.iterateExpenses(targetYear, after);
+    }
+
+    private static <T> ResponseEntity<T> unavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .build();
+    }
+
+    private static void writeLine(JsonGenerator generator, Object value) {
+        try {
+            generator.writeObject(value);
+            generator.writeRaw('\n');
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static LocalDate rangeStart(LocalDate from, LocalDate to) {
+        return from != null ? from : to.withDayOfYear(1);
+    }
+
+    private static LocalDate rangeEnd(LocalDate start, LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : from.withMonth(12).withDayOfMonth(31);
+        if (start.isAfter(end) || end.getYear() - start.getYear() >= MAX_RANGE_YEARS) {
+            throw new IllegalArgumentException("Invalid date range: " + start + " to " + end);
+        }
+        return end;
+    }
+
+    private ExpensePage page(Iterator<Expense> expenses, ExpenseCursor after, int limit) {
+        List<Expense> page = new ArrayList<>(Math.min(limit, 64));
+        ExpenseCursor cursor = after;
+        while (page.size() < limit && expenses.hasNext()) {
+            Expense expense = expenses.next();
+            page.add(expense);
+            cursor = cursor.advance(expense);
+        }
+        return new ExpensePage(page, expenses.hasNext() ? cursor.encode() : null);
+    }
 }
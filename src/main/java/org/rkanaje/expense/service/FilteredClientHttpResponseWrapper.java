@@ -4,18 +4,26 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.client.ClientHttpResponse;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
-public class BufferedClientHttpResponseWrapper implements ClientHttpResponse {
+/**
+ * Replaces the body of a response with a stream that filters it. The body may
+ * change length, so the Content-Length header is dropped.
+ */
+public class FilteredClientHttpResponseWrapper implements ClientHttpResponse {
 
     private final ClientHttpResponse originalResponse;
-    private final byte[] responseBody;
+    private final InputStream body;
+    private final HttpHeaders headers;
 
-    public BufferedClientHttpResponseWrapper(ClientHttpResponse originalResponse, byte[] responseBody) {
+    public FilteredClientHttpResponseWrapper(ClientHttpResponse originalResponse, InputStream body) {
         this.originalResponse = originalResponse;
-        this.responseBody = responseBody;
+        this.body = body;
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(originalResponse.getHeaders());
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
     }
 
     @Override
@@ -39,12 +47,12 @@ public class BufferedClientHttpResponseWrapper implements ClientHttpResponse {
     }
 
     @Override
-    public InputStream getBody() throws IOException {
-        return new ByteArrayInputStream(responseBody);
+    public InputStream getBody() {
+        return body;
     }
 
     @Override
     public HttpHeaders getHeaders() {
-        return originalResponse.getHeaders();
+        return headers;
     }
 }
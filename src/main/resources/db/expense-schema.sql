@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS expense (
+    expense_date DATE NOT NULL,
+    topic_key VARCHAR(255) NOT NULL,
+    topic VARCHAR(255) NOT NULL,
+    amount DECIMAL(14, 2) NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (expense_date, topic_key)
+);
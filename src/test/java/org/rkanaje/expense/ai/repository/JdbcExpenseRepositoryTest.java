@@ -0,0 +1,101 @@
+package org.rkanaje.expense.ai.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rkanaje.expense.ai.model.Expense;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JdbcExpenseRepositoryTest {
+
+    private EmbeddedDatabase database;
+    private JdbcExpenseRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("db/expense-schema.sql")
+                .build();
+        repository = new JdbcExpenseRepository(new JdbcTemplate(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void upsertUpdatesMatchingDateAndTopicAndAddsTheRest() {
+        repository.upsert(2025, List.of(
+                new Expense(4.0, "Coffee", "2025-08-14"),
+                new Expense(25.5, "lunch", "2025-08-14")));
+
+        UpsertResult result = repository.upsert(2025, List.of(
+                new Expense(4.5, "coffee", "2025-08-14"),
+                new Expense(40.0, "groceries", "2025-08-09")));
+
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getAdded());
+
+        List<Expense> expenses = repository.findByYear(2025);
+        assertEquals(3, expenses.size());
+        assertEquals("groceries", expenses.get(0).getTopic());
+        assertEquals("coffee", expenses.get(1).getTopic());
+        assertEquals(4.5, expenses.get(1).getAmount());
+    }
+
+    @Test
+    void deleteMatchesOnDateAndTopicWithinTheYear() {
+        repository.upsert(2024, List.of(new Expense(10.0, "rent", "2024-12-31")));
+        repository.upsert(2025, List.of(
+                new Expense(12.0, "Rent", "2025-01-01"),
+                new Expense(3.0, "bus", "2025-01-01")));
+
+        int deleted = repository.delete(2025, List.of(new Expense(0, "RENT", "2025-01-01")));
+
+        assertEquals(1, deleted);
+        assertEquals(1, repository.findByYear(2025).size());
+        assertEquals(1, repository.findByYear(2024).size());
+    }
+
+    @Test
+    void deleteExactKeepsRowsWithAnotherAmount() {
+        repository.upsert(2025, List.of(new Expense(12.0, "Rent", "2025-01-01")));
+
+        assertEquals(0, repository.deleteExact(2025, List.of(new Expense(11.0, "rent", "2025-01-01"))));
+        assertEquals(1, repository.deleteExact(2025, List.of(new Expense(12.0, "rent", "2025-01-01"))));
+        assertEquals(0, repository.findByYear(2025).size());
+    }
+
+    @Test
+    void concurrentUpsertsOfANewKeyKeepOneRow() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<UpsertResult>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                double amount = i;
+                results.add(executor.submit(() -> repository.upsert(2025, List.of(new Expense(amount, "taxi", "2025-02-02")))));
+            }
+            for (Future<UpsertResult> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, repository.findByYear(2025).size());
+    }
+}
@@ -0,0 +1,36 @@
+package org.rkanaje.expense.ai.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Bulkhead bulkhead = new Bulkhead("test", 2, 10, meterRegistry);
+
+    @Test
+    void rejectsCallsBeyondTheLimit() {
+        bulkhead.acquire();
+        bulkhead.acquire();
+
+        BulkheadFullException e = assertThrows(BulkheadFullException.class, bulkhead::acquire);
+
+        assertEquals("test", e.getBackend());
+        assertEquals(2, meterRegistry.get("bulkhead.active").gauge().value());
+        assertEquals(1, meterRegistry.counter("bulkhead.rejected", "backend", "test").count());
+    }
+
+    @Test
+    void releasedPermitsCanBeReused() {
+        bulkhead.acquire();
+        bulkhead.acquire();
+        bulkhead.release();
+
+        bulkhead.acquire();
+
+        assertEquals(2, bulkhead.active());
+    }
+}
@@ -0,0 +1,85 @@
+package org.rkanaje.expense.ai.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.rkanaje.expense.ai.tool.DateTool;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatResponseCacheTest {
+
+    private final DateTool dateTool = mock(DateTool.class);
+    private final ChatResponseCache cache = new ChatResponseCache(dateTool, true, 100, 60000, new SimpleMeterRegistry());
+
+    @Test
+    void keysOnFoldedMessageWithResolvedDates() {
+        when(dateTool.getDate()).thenReturn("2025-08-14");
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("parse", "Coffee 4 yesterday", () -> ChatResponseCache.Result.of(loads.incrementAndGet(), Set.of()));
+        int answer = cache.get("parse", "  coffee   4 2025-08-13 ",
+                () -> ChatResponseCache.Result.of(loads.incrementAndGet(), Set.of()));
+        assertEquals(1, answer);
+
+        // "yesterday" is another date tomorrow
+        when(dateTool.getDate()).thenReturn("2025-08-15");
+        assertEquals(2, (int) cache.get("parse", "Coffee 4 yesterday",
+                () -> ChatResponseCache.Result.of(loads.incrementAndGet(), Set.of())));
+    }
+
+    @Test
+    void dropsAnswersOfChangedYearsAndDoesNotStoreUncachedOnes() {
+        when(dateTool.getDate()).thenReturn("2025-08-14");
+
+        cache.get("chat", "total for 2025?", () -> ChatResponseCache.Result.of("old 2025", Set.of(2025)));
+        cache.get("chat", "total for 2024?", () -> ChatResponseCache.Result.of("old 2024", Set.of(2024)));
+        cache.get("chat", "clear 2023", () -> ChatResponseCache.Result.uncached("cleared"));
+        cache.onExpensesChanged(new ExpensesChangedEvent(2025));
+
+        assertEquals("new 2025", cache.get("chat", "total for 2025?", () -> ChatResponseCache.Result.of("new 2025", Set.of(2025))));
+        assertEquals("old 2024", cache.get("chat", "total for 2024?", () -> ChatResponseCache.Result.of("new 2024", Set.of(2024))));
+        assertEquals("again", cache.get("chat", "clear 2023", () -> ChatResponseCache.Result.uncached("again")));
+    }
+
+    @Test
+    void sharesConcurrentLoadsOfTheSameMessage() throws Exception {
+        when(dateTool.getDate()).thenReturn("2025-08-14");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get("parse", "tea 3", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return ChatResponseCache.Result.of("shared", Set.of());
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.get("parse", "TEA 3",
+                () -> ChatResponseCache.Result.of("own " + loads.incrementAndGet(), Set.of())));
+        // Give the second caller time to find the running load
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("shared", first.get(5, TimeUnit.SECONDS));
+        assertEquals("shared", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.rkanaje.expense.ai.service;
+
+import org.junit.jupiter.api.Test;
+import org.rkanaje.expense.ai.model.Expense;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExpenseColumnsTest {
+
+    private final ExpenseColumns columns = ExpenseColumns.of(2025, List.of(
+            new Expense(4.0, "Coffee", "2025-08-14"),
+            new Expense(25.5, "Lunch with team", "2025-08-14"),
+            new Expense(40.0, "groceries", "2025-08-09"),
+            new Expense(3.5, "coffee beans", "2025-07-01")));
+
+    @Test
+    void topicFilterMatchesSubstringIgnoringCase() {
+        assertEquals(2, columns.count(ExpenseQuery.builder().topic("COFFEE").build()));
+        assertEquals(1, columns.count(ExpenseQuery.builder().topic("with").build()));
+        assertEquals(0, columns.count(ExpenseQuery.builder().topic("parking").build()));
+        assertEquals(750, columns.sumCents(ExpenseQuery.builder().topic("co").build()));
+    }
+
+    @Test
+    void upsertsAndDeletesPatchTheSnapshot() {
+        ExpenseColumns patched = columns
+                .withUpserts(List.of(
+                        new Expense(4.5, "coffee", "2025-08-14"),
+                        new Expense(9.0, "Parking", "2025-08-10")))
+                .withDeletes(List.of(new Expense(0, "GROCERIES", "2025-08-09")));
+
+        assertEquals(4, patched.size());
+        assertEquals(450, patched.sumCents(ExpenseQuery.builder().month(8).day(14).topic("coffee").build()));
+        assertEquals(1, patched.count(ExpenseQuery.builder().topic("parking").build()));
+        assertEquals("2025-08-10", patched.find(ExpenseQuery.builder().month(8).build()).get(0).getDate());
+        // The original snapshot is unchanged
+        assertEquals(4, columns.count(ExpenseQuery.ALL));
+        assertEquals(400, columns.sumCents(ExpenseQuery.builder().month(8).day(14).topic("coffee").build()));
+    }
+
+    @Test
+    void upsertUpdatesOnlyTheLastOfDuplicateRows() {
+        ExpenseColumns duplicates = ExpenseColumns.of(2025, List.of(
+                new Expense(10.0, "Lunch", "2025-03-01"),
+                new Expense(5.0, "rent", "2025-02-01"),
+                new Expense(12.0, "lunch", "2025-03-01")));
+
+        ExpenseColumns patched = duplicates.withUpserts(List.of(new Expense(20.0, "lunch", "2025-03-01")));
+
+        assertEquals(List.of(new Expense(10.0, "Lunch", "2025-03-01"), new Expense(20.0, "lunch", "2025-03-01")),
+                patched.find(ExpenseQuery.builder().month(3).build()));
+        assertEquals(3500, patched.rollups().totalCents());
+    }
+
+    @Test
+    void mergeBetweenInterleavesYearsInDateOrder() {
+        ExpenseColumns previous = ExpenseColumns.of(2024, List.of(
+                new Expense(10.0, "rent", "2024-12-31"),
+                new Expense(1.0, "gum", "2024-06-01"),
+                // Misfiled row dated in the next year
+                new Expense(2.0, "late entry", "2025-07-15")));
+
+        List<Expense> merged = ExpenseColumns.mergeBetween(List.of(columns, previous),
+                LocalDate.of(2024, 12, 1), LocalDate.of(2025, 8, 9));
+
+        assertEquals(List.of("2024-12-31", "2025-07-01", "2025-07-15", "2025-08-09"),
+                merged.stream().map(Expense::getDate).toList());
+    }
+
+    @Test
+    void rollupsFollowUpsertsAndDeletes() {
+        ExpenseColumns patched = columns
+                .withUpserts(List.of(
+                        new Expense(4.5, "coffee", "2025-08-14"),
+                        new Expense(9.0, "Parking", "2025-08-10")))
+                .withDeletes(List.of(new Expense(0, "GROCERIES", "2025-08-09")));
+        ExpenseRollups rollups = patched.rollups();
+        ExpenseRollups recomputed = ExpenseColumns.of(2025, patched.asList()).rollups();
+
+        assertEquals(recomputed.totalCents(), rollups.totalCents());
+        assertEquals(4250, rollups.totalCents());
+        assertEquals(3900, rollups.monthCents(8));
+        assertEquals(3, rollups.monthCount(8));
+        assertEquals(3000, rollups.dayCents(LocalDate.of(2025, 8, 14)));
+        assertEquals(0, rollups.dayCount(LocalDate.of(2025, 8, 9)));
+        // The update renamed the row to the lower-case spelling
+        int coffee = patched.topics().idOf("coffee");
+        assertEquals(450, rollups.topicCents(coffee));
+        assertEquals(450, rollups.topicMonthCents(coffee, 8));
+    }
+}
@@ -0,0 +1,123 @@
+package org.rkanaje.expense.ai.service;
+
+import org.junit.jupiter.api.Test;
+import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.model.ImportResult;
+import org.rkanaje.expense.ai.repository.UpsertResult;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExpenseImportServiceTest {
+
+    private final List<List<Expense>> chunks = new ArrayList<>();
+    // What the service has recorded, per year, keyed by date and lower-cased topic
+    private final Map<Integer, Map<String, Expense>> recorded = new HashMap<>();
+    private final ExpenseService expenseService = mock(ExpenseService.class);
+    private final ExpenseImportService importService = new ExpenseImportService(expenseService, 3);
+
+    ExpenseImportServiceTest() {
+        when(expenseService.getYear(anyInt())).thenAnswer(invocation -> {
+            int year = invocation.getArgument(0);
+            return ExpenseColumns.of(year, new ArrayList<>(recorded.getOrDefault(year, Map.of()).values()));
+        });
+        when(expenseService.addOrUpdateExpenses(anyInt(), anyList())).thenAnswer(invocation -> {
+            List<Expense> chunk = invocation.getArgument(1);
+            chunks.add(chunk.stream().map(e -> new Expense(e.getAmount(), e.getTopic(), e.getDate())).toList());
+            Map<String, Expense> year = recorded.computeIfAbsent(invocation.getArgument(0), y -> new LinkedHashMap<>());
+            int updated = 0;
+            for (Expense expense : chunk) {
+                if (year.put(expense.getDate() + "|" + expense.getTopic().toLowerCase(Locale.ROOT), expense) != null) {
+                    updated++;
+                }
+            }
+            return new UpsertResult(updated, chunk.size() - updated);
+        });
+    }
+
+    @Test
+    void normalizesRowsAndWritesChunks() throws Exception {
+        String csv = """
+                Description,Amount,Date
+                Coffee,$4.50,08/14/2025
+                coffee ,"1,000.00",08/14/2025
+                Lunch   with  team,25.50,08/14/2025
+                Rent,1200,12/31/2024
+                Bad,abc,08/15/2025
+                Groceries,40,2025-08-09
+                Refund,-$4.50,08/16/2025
+                Credit,(25.50),08/16/2025
+                """;
+        List<ImportResult> progress = new ArrayList<>();
+
+        ImportResult result = importService.importCsv(new StringReader(csv), "MM/dd/yyyy", progress::add);
+
+        assertEquals(8, result.getRowsRead());
+        assertEquals(4, result.getRowsRejected());
+        assertEquals(List.of(6L, 7L, 8L, 9L), result.getRejected().stream().map(ImportResult.RejectedRow::getLine).toList());
+        assertEquals(3, result.getExpensesWritten());
+        assertEquals(List.of(2024, 2025), result.getYears());
+        assertNull(result.getError());
+
+        // The third buffered row fills the chunk, which flushes the larger 2025 buffer; 2024 is written at the end
+        assertEquals(List.of(new Expense(1004.5, "Coffee", "2025-08-14"), new Expense(25.5, "Lunch with team", "2025-08-14")),
+                chunks.get(0));
+        assertEquals(List.of(new Expense(1200, "Rent", "2024-12-31")), chunks.get(1));
+        assertEquals(2, progress.size());
+        assertFalse(progress.get(0).isDone());
+        assertEquals(2, progress.get(0).getExpensesWritten());
+    }
+
+    @Test
+    void sumsDuplicatesAcrossChunks() throws Exception {
+        StringBuilder csv = new StringBuilder("date,amount,topic\n");
+        for (int day = 1; day <= 9; day++) {
+            csv.append("2025-01-0").append(day).append(",1,coffee\n");
+        }
+        csv.append("2025-01-01,2,Coffee\n");
+
+        ImportResult result = importService.importCsv(new StringReader(csv.toString()), null, progress -> { });
+
+        // The last row lands in a later chunk than the first and is added to what that chunk wrote
+        assertEquals(List.of(new Expense(3, "Coffee", "2025-01-01")), chunks.get(3));
+        assertEquals(3, recorded.get(2025).get("2025-01-01|coffee").getAmount());
+        assertEquals(9, result.getAdded());
+        assertEquals(1, result.getUpdated());
+    }
+
+    @Test
+    void boundsChunksAndReportsProgressAfterEach() throws Exception {
+        StringBuilder csv = new StringBuilder("date,amount,topic\n");
+        for (int i = 0; i < 10; i++) {
+            csv.append("2025-01-01,1,item ").append(i).append('\n');
+        }
+        List<ImportResult> progress = new ArrayList<>();
+
+        ImportResult result = importService.importCsv(new StringReader(csv.toString()), null, progress::add);
+
+        assertNull(result.getError());
+        assertEquals(List.of(3, 3, 3, 1), chunks.stream().map(List::size).toList());
+        assertEquals(List.of(3L, 6L, 9L, 10L), progress.stream().map(ImportResult::getExpensesWritten).toList());
+        assertEquals(List.of(3L, 6L, 9L, 10L), progress.stream().map(ImportResult::getRowsRead).toList());
+    }
+
+    @Test
+    void rejectsHeaderWithoutRequiredColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.importCsv(new StringReader("when,how much\n2025-01-01,3\n"), null, progress -> { }));
+    }
+}
@@ -0,0 +1,136 @@
+package org.rkanaje.expense.ai.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.repository.ExpenseRepository;
+import org.rkanaje.expense.ai.repository.UpsertResult;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExpenseServiceImplTest {
+
+    private final ExpenseRepository repository = mock(ExpenseRepository.class);
+    private final ExpenseServiceImpl expenseService = new ExpenseServiceImpl(repository,
+            new ExpenseYearCache(1000, 60000, new SimpleMeterRegistry()), mock(ApplicationEventPublisher.class));
+
+    ExpenseServiceImplTest() {
+        when(repository.findColumnsByYear(2025)).thenReturn(ExpenseColumns.of(2025, List.of(
+                new Expense(12, "lunch", "2025-08-13"),
+                new Expense(4, "coffee", "2025-08-14"),
+                new Expense(15, "lunch", "2025-08-14"))));
+        when(repository.upsert(anyInt(), anyList())).thenAnswer(invocation ->
+                new UpsertResult(((List<?>) invocation.getArgument(1)).size(), 0));
+    }
+
+    @Test
+    void readErrorsPropagateAndAreNotCached() {
+        when(repository.findColumnsByYear(2023))
+                .thenThrow(new UncheckedIOException(new IOException("Service unavailable")))
+                .thenReturn(ExpenseColumns.of(2023, List.of(new Expense(7, "taxi", "2023-05-01"))));
+
+        assertThrows(UncheckedIOException.class, () -> expenseService.getSummary(2023, null, null));
+        assertEquals(7.0, expenseService.getSummary(2023, null, null).getTotal());
+    }
+
+    @Test
+    void deletesMatchingExpensesWithOneWrite() {
+        List<Expense> deleted = expenseService.deleteExpensesMatching(2025,
+                ExpenseQuery.builder().topic("lunch").build());
+
+        List<Expense> lunches = List.of(new Expense(12, "lunch", "2025-08-13"), new Expense(15, "lunch", "2025-08-14"));
+        assertEquals(lunches, deleted);
+        verify(repository).deleteExact(2025, lunches);
+        assertEquals(List.of(new Expense(4, "coffee", "2025-08-14")), expenseService.getExpensesByYear(2025));
+    }
+
+    @Test
+    void deletesOnlyTheMatchingAmountOfSameDayTopics() {
+        when(repository.findColumnsByYear(2024)).thenReturn(ExpenseColumns.of(2024, List.of(
+                new Expense(25.5, "lunch", "2024-03-01"),
+                new Expense(9, "Lunch", "2024-03-01"),
+                new Expense(25.5, "lunch", "2024-03-02"))));
+
+        List<Expense> deleted = expenseService.deleteExpensesMatching(2024,
+                ExpenseQuery.builder().month(3).day(1).topic("lunch").amount(25.5).build());
+
+        assertEquals(List.of(new Expense(25.5, "lunch", "2024-03-01")), deleted);
+        verify(repository).deleteExact(2024, deleted);
+        verify(repository, never()).delete(anyInt(), anyList());
+        assertEquals(List.of(new Expense(9, "Lunch", "2024-03-01"), new Expense(25.5, "lunch", "2024-03-02")),
+                expenseService.getExpensesByYear(2024));
+    }
+
+    @Test
+    void deletesAWholeYearOnlyExplicitly() {
+        assertThrows(IllegalArgumentException.class, () -> expenseService.deleteExpensesMatching(2025, ExpenseQuery.ALL));
+        assertThrows(IllegalArgumentException.class, () -> expenseService.updateExpensesMatching(2025,
+                ExpenseQuery.builder().topic(" ").build(), ExpenseChange.builder().amount(1.0).build()));
+        verify(repository, never()).deleteExact(anyInt(), anyList());
+
+        assertEquals(3, expenseService.deleteAllExpenses(2025).size());
+        assertEquals(List.of(), expenseService.getExpensesByYear(2025));
+    }
+
+    @Test
+    void updatesAmountsInPlaceAndMovesChangedDates() {
+        ExpenseQuery coffee = ExpenseQuery.builder().topic("coffee").build();
+        when(repository.findColumnsByYear(2024)).thenReturn(ExpenseColumns.of(2024, List.of()));
+
+        expenseService.updateExpensesMatching(2025, coffee, ExpenseChange.builder().amount(5.0).build());
+        verify(repository).upsert(2025, List.of(new Expense(5, "coffee", "2025-08-14")));
+        verify(repository, never()).deleteExact(anyInt(), anyList());
+
+        List<Expense> moved = expenseService.updateExpensesMatching(2025, coffee,
+                ExpenseChange.builder().date("2024-12-31").build());
+        assertEquals(List.of(new Expense(5, "coffee", "2024-12-31")), moved);
+        // Added under the new date before the old row is deleted
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).upsert(2024, moved);
+        inOrder.verify(repository).deleteExact(2025, List.of(new Expense(5, "coffee", "2025-08-14")));
+    }
+
+    @Test
+    void rejectsChangesThatMergeExpenses() {
+        // Both lunches would become one expense on the same day
+        assertThrows(IllegalArgumentException.class, () -> expenseService.updateExpensesMatching(2025,
+                ExpenseQuery.builder().topic("lunch").build(), ExpenseChange.builder().date("2025-09-01").build()));
+        // The coffee would overwrite the lunch of its day
+        assertThrows(IllegalArgumentException.class, () -> expenseService.updateExpensesMatching(2025,
+                ExpenseQuery.builder().topic("coffee").build(), ExpenseChange.builder().topic("Lunch").build()));
+        verify(repository, never()).upsert(anyInt(), anyList());
+        verify(repository, never()).deleteExact(anyInt(), anyList());
+    }
+
+    @Test
+    void keepsTheOldExpensesWhenWritingTheNewOnesFails() {
+        when(repository.upsert(anyInt(), anyList())).thenThrow(new IllegalStateException("quota"));
+
+        assertThrows(IllegalStateException.class, () -> expenseService.updateExpensesMatching(2025,
+                ExpenseQuery.builder().topic("coffee").build(), ExpenseChange.builder().topic("tea").build()));
+        verify(repository, never()).deleteExact(anyInt(), anyList());
+    }
+
+    @Test
+    void rejectsInvalidDatesBeforeDeleting() {
+        assertThrows(DateTimeParseException.class, () -> expenseService.updateExpensesMatching(2025,
+                ExpenseQuery.builder().topic("coffee").build(), ExpenseChange.builder().date("2025-13-01").build()));
+        verify(repository, never()).upsert(anyInt(), anyList());
+        verify(repository, never()).deleteExact(anyInt(), anyList());
+    }
+}
@@ -0,0 +1,74 @@
+package org.rkanaje.expense.ai.service;
+
+import org.junit.jupiter.api.Test;
+import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.tool.DateTool;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FastPathExpenseParserTest {
+
+    // 2025-08-14 is a Thursday
+    private final FastPathExpenseParser parser = parser("2025-08-14");
+
+    @Test
+    void parsesSimpleExpenses() {
+        assertEquals(Optional.of(List.of(new Expense(25.5, "lunch", "2025-08-14"))),
+                parser.parse("I spent $25.50 on lunch today"));
+        assertEquals(Optional.of(List.of(new Expense(4, "coffee", "2025-08-14"))),
+                parser.parse("coffee 4"));
+        assertEquals(Optional.of(List.of(new Expense(12, "parking", "2025-08-13"),
+                        new Expense(3.2, "tea", "2025-08-08"))),
+                parser.parse("Parking 12 yesterday, 3.20 dollars for tea last Friday."));
+        assertEquals(Optional.of(List.of(new Expense(1200, "rent", "2025-08-01"))),
+                parser.parse("paid 1200 for rent on 2025-08-01"));
+        assertEquals(Optional.of(List.of(new Expense(80, "shoes", "2025-08-11"))),
+                parser.parse("bought shoes for 80 on Monday"));
+        assertEquals(Optional.of(List.of(new Expense(9, "ice cream", "2025-08-14"))),
+                parser.parse("ice cream 9 thursday"));
+        assertEquals(Optional.of(List.of(new Expense(4, "coffee", "2025-08-14"), new Expense(12, "parking", "2025-08-14"))),
+                parser.parse("coffee 4 and parking 12"));
+        assertEquals(Optional.of(List.of(new Expense(30, "tickets", "2025-08-14"))),
+                parser.parse("$30 tickets"));
+    }
+
+    @Test
+    void leavesCountsToTheModel() {
+        for (String message : List.of(
+                "bought 2 tickets",
+                "got 3 coffees today",
+                "2 pizzas",
+                "paid for 4 tickets yesterday",
+                "coffee 4 and parking 12 yesterday")) {
+            assertEquals(Optional.empty(), parser.parse(message), message);
+        }
+    }
+
+    @Test
+    void leavesAmbiguousMessagesToTheModel() {
+        for (String message : List.of(
+                "how much did I spend on lunch?",
+                "delete the 25.50 lunch from today",
+                "Bought groceries for 40 dollars last Friday and 15 on coffee",
+                "lunch and coffee for 12",
+                "2 coffees at 3 each",
+                "spent 25 on lunch with the team at the new place downtown",
+                "taxi 12 on 2025-02-30",
+                "lunch 12 today yesterday",
+                "12 15 lunch",
+                "lunch")) {
+            assertEquals(Optional.empty(), parser.parse(message), message);
+        }
+    }
+
+    private static FastPathExpenseParser parser(String today) {
+        DateTool dateTool = mock(DateTool.class);
+        when(dateTool.getDate()).thenReturn(today);
+        return new FastPathExpenseParser(dateTool);
+    }
+}
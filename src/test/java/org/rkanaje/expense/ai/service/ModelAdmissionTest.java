@@ -0,0 +1,69 @@
+package org.rkanaje.expense.ai.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelAdmissionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void admitsParseCallsBeforeEarlierChatCalls() throws Exception {
+        ModelAdmission admission = new ModelAdmission(1, 8, 5000, 5000, meterRegistry);
+        List<String> order = new CopyOnWriteArrayList<>();
+        ModelAdmission.Permit running = admission.acquire(ModelAdmission.Priority.CHAT);
+
+        CompletableFuture<Void> chat = CompletableFuture.runAsync(() ->
+                admission.call(ModelAdmission.Priority.CHAT, () -> order.add("chat")));
+        awaitQueued(admission, ModelAdmission.Priority.CHAT);
+        CompletableFuture<Void> parse = CompletableFuture.runAsync(() ->
+                admission.call(ModelAdmission.Priority.PARSE, () -> order.add("parse")));
+        awaitQueued(admission, ModelAdmission.Priority.PARSE);
+        running.release();
+
+        CompletableFuture.allOf(chat, parse).get(1, TimeUnit.SECONDS);
+        assertEquals(List.of("parse", "chat"), order);
+        assertEquals(0, admission.active());
+    }
+
+    @Test
+    void rejectsCallsQueuedPastTheirDeadline() {
+        ModelAdmission admission = new ModelAdmission(1, 8, 50, 5000, meterRegistry);
+        ModelAdmission.Permit running = admission.acquire(ModelAdmission.Priority.CHAT);
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                () -> admission.acquire(ModelAdmission.Priority.PARSE));
+
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertEquals(0, admission.queueDepth(ModelAdmission.Priority.PARSE));
+        assertEquals(1, meterRegistry.counter("expense.admission.rejected",
+                "priority", "parse", "reason", "deadline").count());
+        running.release();
+    }
+
+    @Test
+    void rejectsCallsWhenTheQueueIsFull() {
+        ModelAdmission admission = new ModelAdmission(1, 0, 5000, 5000, meterRegistry);
+        admission.acquire(ModelAdmission.Priority.PARSE);
+
+        assertThrows(AdmissionRejectedException.class, () -> admission.acquire(ModelAdmission.Priority.PARSE));
+        assertEquals(1, meterRegistry.counter("expense.admission.rejected",
+                "priority", "parse", "reason", "queue-full").count());
+    }
+
+    private static void awaitQueued(ModelAdmission admission, ModelAdmission.Priority priority) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (admission.queueDepth(priority) == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.rkanaje.expense.ai.service;
+
+import org.junit.jupiter.api.Test;
+import org.rkanaje.expense.ai.config.OllamaConfig;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ModelRouterTest {
+
+    @Test
+    void routesOperationsToTheirProfiles() {
+        OllamaConfig config = config();
+        config.getProfiles().put("fast", chat("qwen3:1.7b", false));
+        config.getRoutes().put("parse", route("fast", ModelRouter.DEFAULT_PROFILE));
+
+        ModelRouter router = new ModelRouter(config);
+
+        ModelRouter.Profile parse = router.route("parse");
+        assertEquals("qwen3:1.7b", parse.options().getModel());
+        // Options not set on the profile come from ollama.chat
+        assertEquals(4096, parse.options().getNumCtx());
+        assertEquals("prompt\n/no_think", parse.system("prompt"));
+        assertEquals(Optional.of(ModelRouter.DEFAULT_PROFILE), router.escalation("parse").map(ModelRouter.Profile::getName));
+
+        assertEquals("qwen3:latest", router.route("chat").options().getModel());
+        assertEquals("prompt", router.route("chat").system("prompt"));
+        assertEquals(Optional.empty(), router.escalation("chat"));
+    }
+
+    @Test
+    void profilesInheritUnsetOptionsOneByOne() {
+        OllamaConfig config = config();
+        OllamaConfig.Options options = new OllamaConfig.Options();
+        options.setTemperature(0.1);
+        OllamaConfig.Chat precise = chat("qwen3:8b", null);
+        precise.setOptions(options);
+        config.getProfiles().put("precise", precise);
+
+        ModelRouter.Profile profile = new ModelRouter(config).profiles().stream()
+                .filter(p -> p.getName().equals("precise"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(0.1, profile.options().getTemperature());
+        assertEquals(4096, profile.options().getNumCtx());
+    }
+
+    @Test
+    void rejectsRoutesToUnknownProfiles() {
+        OllamaConfig config = config();
+        config.getRoutes().put("parse", route("missing", null));
+
+        assertThrows(IllegalStateException.class, () -> new ModelRouter(config));
+    }
+
+    static OllamaConfig config() {
+        OllamaConfig.Options options = new OllamaConfig.Options();
+        options.setNumCtx(4096);
+        options.setTemperature(0.5);
+        OllamaConfig.Chat chat = chat("qwen3:latest", null);
+        chat.setOptions(options);
+
+        OllamaConfig config = new OllamaConfig();
+        config.setChat(chat);
+        return config;
+    }
+
+    private static OllamaConfig.Chat chat(String model, Boolean think) {
+        OllamaConfig.Chat chat = new OllamaConfig.Chat();
+        chat.setModel(model);
+        chat.setThink(think);
+        return chat;
+    }
+
+    private static OllamaConfig.Route route(String profile, String escalateTo) {
+        OllamaConfig.Route route = new OllamaConfig.Route();
+        route.setProfile(profile);
+        route.setEscalateTo(escalateTo);
+        return route;
+    }
+}
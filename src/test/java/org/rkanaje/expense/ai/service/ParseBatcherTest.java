@@ -0,0 +1,68 @@
+package org.rkanaje.expense.ai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.rkanaje.expense.ai.model.Expense;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.core.ParameterizedTypeReference;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParseBatcherTest {
+
+    private final ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+    private final PromptTemplateRegistry promptTemplates = mock(PromptTemplateRegistry.class);
+    private final ModelAdmission admission = new ModelAdmission(4, 32, 1000, 1000, new SimpleMeterRegistry());
+    private final ModelRouter modelRouter = new ModelRouter(ModelRouterTest.config());
+
+    @Test
+    void sendsConcurrentMessagesAsOneCallAndFallsBackForInvalidAnswers() throws Exception {
+        when(promptTemplates.render("system_expense_batch")).thenReturn("batch prompt");
+        ChatClient.CallResponseSpec call = chatClient.prompt().options(any()).system(anyString()).user(anyString()).call();
+        // Messages "2" and "3" get answers with dates that cannot be written, which are rejected
+        when(call.entity(any(ParameterizedTypeReference.class))).thenReturn(Map.of(
+                "0", List.of(new Expense(4, "coffee", "2025-08-14")),
+                "1", List.of(new Expense(12, "taxi", "2025-08-13")),
+                "2", List.of(new Expense(3, "tea", "last Friday")),
+                "3", List.of(new Expense(5, "cake", "2025-13-40"))));
+        ParseBatcher batcher = new ParseBatcher(chatClient, promptTemplates, new ObjectMapper(), admission, modelRouter, true, 4, 5000,
+                new SimpleMeterRegistry());
+
+        CompletableFuture<Optional<List<Expense>>> first = CompletableFuture.supplyAsync(() -> batcher.parse("coffee 4"));
+        // The batch is full with the fourth message and is sent without waiting 5 seconds
+        Thread.sleep(100);
+        CompletableFuture<Optional<List<Expense>>> second = CompletableFuture.supplyAsync(() -> batcher.parse("taxi 12 yesterday"));
+        Thread.sleep(100);
+        CompletableFuture<Optional<List<Expense>>> third = CompletableFuture.supplyAsync(() -> batcher.parse("tea 3 last friday"));
+        Thread.sleep(100);
+        Optional<List<Expense>> fourth = batcher.parse("cake 5");
+
+        assertEquals(Optional.of(List.of(new Expense(4, "coffee", "2025-08-14"))), first.get(1, TimeUnit.SECONDS));
+        assertEquals(Optional.of(List.of(new Expense(12, "taxi", "2025-08-13"))), second.get(1, TimeUnit.SECONDS));
+        assertEquals(Optional.empty(), third.get(1, TimeUnit.SECONDS));
+        assertEquals(Optional.empty(), fourth);
+        verify(call, times(1)).entity(any(ParameterizedTypeReference.class));
+    }
+
+    @Test
+    void leavesLoneMessagesToTheCaller() {
+        ParseBatcher batcher = new ParseBatcher(chatClient, promptTemplates, new ObjectMapper(), admission, modelRouter, true, 8, 10,
+                new SimpleMeterRegistry());
+
+        assertEquals(Optional.empty(), batcher.parse("coffee 4"));
+    }
+}
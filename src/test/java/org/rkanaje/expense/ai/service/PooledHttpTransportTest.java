@@ -0,0 +1,127 @@
+package org.rkanaje.expense.ai.service;
+
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the Sheets client on {@link PooledHttpTransport} against a local fake endpoint.
+ */
+class PooledHttpTransportTest {
+
+    private static final String VALUES = "{\"range\":\"Expense_2025!A1:C2\",\"values\":[[\"Date\",\"Amount\",\"Description\"]]}";
+
+    private volatile String requestBody;
+    private volatile String responseBody = VALUES;
+    private volatile int status = 200;
+
+    private HttpServer server;
+    private PooledHttpTransport transport;
+    private Sheets sheets;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        transport = new PooledHttpTransport(4, Duration.ofSeconds(30), Duration.ofSeconds(5), true);
+        sheets = new Sheets.Builder(transport, GsonFactory.getDefaultInstance(), null)
+                .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+                .setApplicationName("test")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void readsGzippedResponses() throws IOException {
+        ValueRange values = sheets.spreadsheets().values().get("sheet-id", "Expense_2025!A:C").execute();
+
+        assertEquals(List.of(List.of("Date", "Amount", "Description")), values.getValues());
+    }
+
+    @Test
+    void sendsRequestBodies() throws IOException {
+        ValueRange update = new ValueRange().setValues(List.of(List.of("2025-08-14", "4.5", "coffee")));
+
+        sheets.spreadsheets().values().update("sheet-id", "Expense_2025!A2:C2", update)
+                .setValueInputOption("RAW")
+                .execute();
+
+        assertTrue(requestBody.contains("\"coffee\""), requestBody);
+    }
+
+    @Test
+    void streamsBodiesLargerThanTheBuffers() throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            rows.add(List.of("2025-08-14", String.valueOf(i), "topic " + i));
+        }
+        responseBody = GsonFactory.getDefaultInstance().toString(new ValueRange().setValues(rows));
+
+        sheets.spreadsheets().values().update("sheet-id", "Expense_2025!A2:C", new ValueRange().setValues(rows))
+                .setValueInputOption("RAW")
+                .execute();
+        assertTrue(requestBody.contains("\"topic 49999\""));
+
+        ValueRange values = sheets.spreadsheets().values().get("sheet-id", "Expense_2025!A:C").execute();
+        assertEquals(rows, values.getValues());
+    }
+
+    @Test
+    void reportsErrorStatuses() {
+        status = 429;
+
+        HttpResponseException e = assertThrows(HttpResponseException.class,
+                () -> sheets.spreadsheets().values().get("sheet-id", "Expense_2025!A:C").execute());
+
+        assertEquals(429, e.getStatusCode());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        requestBody = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(body)) {
+            gzip.write((status == 200 ? responseBody : "{\"error\":{\"code\":" + status + "}}").getBytes(StandardCharsets.UTF_8));
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(status, body.size());
+        exchange.getResponseBody().write(body.toByteArray());
+        exchange.close();
+    }
+}
@@ -0,0 +1,83 @@
+package org.rkanaje.expense.ai.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rkanaje.expense.ai.tool.DateTool;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PromptTemplateRegistryTest {
+
+    @TempDir
+    Path prompts;
+
+    @Test
+    void rendersDateVariablesOncePerDay() throws IOException {
+        Files.writeString(prompts.resolve("parse.template"),
+                "Today is {{today}} ({{year}}-{{month}}-{{day}}), last Friday was {{lastFriday}}. {\"date\": \"{{yesterday}}\"}");
+        DateTool dateTool = mock(DateTool.class);
+        when(dateTool.getDate()).thenReturn("2025-08-14", "2025-08-14", "2025-08-15");
+
+        PromptTemplateRegistry registry = registry(dateTool, false);
+
+        String first = registry.render("parse");
+        assertEquals("Today is 2025-08-14 (2025-8-14), last Friday was 2025-08-08. {\"date\": \"2025-08-13\"}", first);
+        assertSame(first, registry.render("parse"));
+        assertEquals("Today is 2025-08-15 (2025-8-15), last Friday was 2025-08-08. {\"date\": \"2025-08-14\"}",
+                registry.render("parse"));
+        assertThrows(IllegalArgumentException.class, () -> registry.render("missing"));
+    }
+
+    @Test
+    void reloadsChangedTemplatesAndKeepsBrokenOnesOut() throws IOException {
+        Path file = prompts.resolve("chat.template");
+        Files.writeString(file, "v1 {{today}}");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000));
+        DateTool dateTool = mock(DateTool.class);
+        when(dateTool.getDate()).thenReturn("2025-08-14");
+
+        PromptTemplateRegistry registry = registry(dateTool, true);
+        assertEquals("v1 2025-08-14", registry.render("chat"));
+
+        Files.writeString(file, "v2 {{unknown}}");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000));
+        registry.reloadChanged();
+        assertEquals("v1 2025-08-14", registry.render("chat"));
+
+        Files.writeString(file, "v3 {{today}}");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(3_000_000));
+        registry.reloadChanged();
+        assertEquals("v3 2025-08-14", registry.render("chat"));
+    }
+
+    @Test
+    void bundledTemplatesHaveNoHardCodedDates() {
+        DateTool dateTool = mock(DateTool.class);
+        when(dateTool.getDate()).thenReturn("2031-02-03");
+
+        PromptTemplateRegistry registry = new PromptTemplateRegistry(new DefaultResourceLoader(), dateTool,
+                "classpath:prompts/", false);
+
+        for (String name : new String[]{"system_expense", "system_expense_with_tools", "system_expense_batch"}) {
+            String prompt = registry.render(name);
+            assertTrue(prompt.contains("2031-02-03"), name);
+            assertFalse(prompt.contains("2025-08"), name);
+        }
+    }
+
+    private PromptTemplateRegistry registry(DateTool dateTool, boolean hotReload) {
+        return new PromptTemplateRegistry(new DefaultResourceLoader(), dateTool, prompts.toUri().toString(), hotReload);
+    }
+}
@@ -0,0 +1,76 @@
+package org.rkanaje.expense.ai.service;
+
+import com.sun.management.ThreadMXBean;
+import org.rkanaje.expense.ai.model.Expense;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares decoding a year sheet from formatted values (strings parsed into {@link Expense}
+ * objects, sorted by date string, then converted to columns) with {@link SheetRowDecoder}
+ * on unformatted values. Run with {@code java -cp target/test-classes:target/classes:<deps>}
+ * or from the IDE; not part of the test suite.
+ */
+public class SheetRowDecoderBenchmark {
+
+    private static final int ROWS = 50_000;
+    private static final int ITERATIONS = 50;
+
+    public static void main(String[] args) {
+        List<List<Object>> formatted = new ArrayList<>();
+        List<List<Object>> unformatted = new ArrayList<>();
+        formatted.add(List.of("Date", "Amount", "Description"));
+        unformatted.add(List.of("Date", "Amount", "Description"));
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < ROWS; i++) {
+            LocalDate date = start.plusDays((i * 7919L) % 365);
+            BigDecimal amount = BigDecimal.valueOf(100 + (i * 31L) % 10_000, 2);
+            String topic = "topic " + (i % 500);
+            formatted.add(List.of(date.toString(), amount.toPlainString(), topic));
+            unformatted.add(List.of(BigDecimal.valueOf(date.toEpochDay() + 25569), amount, topic));
+        }
+
+        run("formatted strings", formatted, SheetRowDecoderBenchmark::decodeFormatted);
+        run("unformatted decoder", unformatted, values -> SheetRowDecoder.decode(2025, values).getColumns().size());
+    }
+
+    private static void run(String name, List<List<Object>> values, ToIntFunction<List<List<Object>>> decoder) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int sink = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += decoder.applyAsInt(values); // Warm up
+        }
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += decoder.applyAsInt(values);
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-20s %8.1f ns/row %8.1f bytes/row (%d)%n", name,
+                (double) elapsed / ITERATIONS / ROWS, (double) allocated / ITERATIONS / ROWS, sink);
+    }
+
+    /**
+     * The previous read path: cast and parse every formatted cell, sort by the date string,
+     * then build the columns from the expenses.
+     */
+    private static int decodeFormatted(List<List<Object>> values) {
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 1; i < values.size(); i++) {
+            List<Object> row = values.get(i);
+            expenses.add(Expense.builder()
+                    .date((String) row.get(0))
+                    .amount(Double.parseDouble(row.get(1).toString()))
+                    .topic((String) row.get(2))
+                    .build());
+        }
+        expenses.sort((e1, e2) -> e1.getDate().compareTo(e2.getDate()));
+        return ExpenseColumns.of(2025, expenses).size();
+    }
+}
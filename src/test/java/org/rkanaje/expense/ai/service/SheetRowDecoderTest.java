@@ -0,0 +1,43 @@
+package org.rkanaje.expense.ai.service;
+
+import org.junit.jupiter.api.Test;
+import org.rkanaje.expense.ai.model.Expense;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SheetRowDecoderTest {
+
+    @Test
+    void decodesSerialDatesAndNumericAmountsAndReportsMalformedRows() {
+        List<List<Object>> values = List.of(
+                List.of("Date", "Amount", "Description"),
+                List.of(new BigDecimal("45883"), new BigDecimal("4.5"), "Coffee"),
+                List.of(new BigDecimal("45878.75"), new BigDecimal("40"), "groceries"),
+                List.of("2025-08-10", "12.345", "Parking"),
+                List.of(),
+                List.of(new BigDecimal("45883"), "twelve", "Lunch"),
+                List.of("14/08/2025", new BigDecimal("1"), "Tea"),
+                List.of(new BigDecimal("45883"), new BigDecimal("2")));
+
+        SheetRowDecoder.Result result = SheetRowDecoder.decode(2025, values);
+
+        assertEquals(List.of(
+                        new Expense(40.0, "groceries", "2025-08-09"),
+                        new Expense(12.35, "Parking", "2025-08-10"),
+                        new Expense(4.5, "Coffee", "2025-08-14")),
+                List.copyOf(result.getColumns().asList()));
+        assertEquals(List.of(6, 7, 8), result.getMalformedRows().stream().map(SheetRowDecoder.MalformedRow::getRow).toList());
+    }
+
+    @Test
+    void parsesPlainDecimalText() {
+        assertEquals(1250, SheetRowDecoder.parseCents("12.5"));
+        assertEquals(-1200, SheetRowDecoder.parseCents("-12"));
+        assertEquals(50, SheetRowDecoder.parseCents(".5"));
+        assertEquals(Long.MIN_VALUE, SheetRowDecoder.parseCents("1,200.00"));
+        assertEquals(Long.MIN_VALUE, SheetRowDecoder.parseCents("-"));
+    }
+}
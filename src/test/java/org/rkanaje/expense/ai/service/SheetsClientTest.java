@@ -0,0 +1,140 @@
+package org.rkanaje.expense.ai.service;
+
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs {@link SheetsClient} against a local fake of the Sheets values endpoint.
+ */
+class SheetsClientTest {
+
+    private static final String VALUES = "{\"range\":\"Expense_2025!A1:C2\",\"values\":[[\"Date\",\"Amount\",\"Description\"]]}";
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private volatile int failuresBeforeSuccess;
+    private volatile int failureStatus = 429;
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private HttpServer server;
+    private Sheets sheets;
+    private SheetsClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        sheets = new Sheets.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(), null)
+                .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+                .setApplicationName("test")
+                .build();
+        client = new SheetsClient(meterRegistry, 6000, 100, 3, 1, 5,
+                new Bulkhead("sheets", 16, 1000, meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void retriesThrottledRequests() throws IOException {
+        failuresBeforeSuccess = 2;
+
+        ValueRange values = client.execute(valuesGet());
+
+        assertEquals(1, values.getValues().size());
+        assertEquals(3, calls.get());
+        assertEquals(2, meterRegistry.counter("sheets.retries",
+                "operation", "spreadsheets.values.get", "status", "429").count());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        failuresBeforeSuccess = 10;
+        failureStatus = 503;
+
+        HttpResponseException e = assertThrows(HttpResponseException.class, () -> client.execute(valuesGet()));
+
+        assertEquals(503, e.getStatusCode());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        failuresBeforeSuccess = 1;
+        failureStatus = 400;
+
+        assertThrows(HttpResponseException.class, () -> client.execute(valuesGet()));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void coalescesConcurrentIdenticalReads() throws Exception {
+        release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ValueRange>> reads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                reads.add(executor.submit(() -> client.read(valuesGet())));
+            }
+            // Let the other reads join the one blocked in the server
+            while (meterRegistry.counter("sheets.reads.coalesced").count() < 3) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<ValueRange> read : reads) {
+                assertEquals(1, read.get(5, TimeUnit.SECONDS).getValues().size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    private Sheets.Spreadsheets.Values.Get valuesGet() throws IOException {
+        return sheets.spreadsheets().values().get("sheet-id", "Expense_2025!A:C");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int call = calls.incrementAndGet();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean fail = call <= failuresBeforeSuccess;
+        byte[] body = (fail ? "{\"error\":{\"code\":" + failureStatus + "}}" : VALUES).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(fail ? failureStatus : 200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
@@ -0,0 +1,59 @@
+package org.rkanaje.expense.ai.service;
+
+import com.google.api.client.auth.oauth2.Credential;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.rkanaje.expense.ai.config.OllamaConfig;
+import org.rkanaje.expense.ai.tool.DateTool;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StartupWarmupTest {
+
+    private final OllamaApi ollamaApi = mock(OllamaApi.class);
+    private final Credential credential = mock(Credential.class);
+    private final ExpenseService expenseService = mock(ExpenseService.class);
+    private final DateTool dateTool = mock(DateTool.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void loadsEachModelOnceAndKeepsGoingWhenAStepFails() throws IOException {
+        OllamaConfig config = ModelRouterTest.config();
+        config.getChat().setKeepAlive("30m");
+        OllamaConfig.Chat fast = new OllamaConfig.Chat();
+        fast.setModel("qwen3:1.7b");
+        config.getProfiles().put("fast", fast);
+        // Another profile on the default model is loaded once
+        OllamaConfig.Chat precise = new OllamaConfig.Chat();
+        precise.setModel("qwen3:latest");
+        config.getProfiles().put("precise", precise);
+        when(ollamaApi.chat(any())).thenThrow(new IllegalStateException("connection refused"));
+        when(dateTool.getDate()).thenReturn("2025-08-14");
+
+        new StartupWarmup(ollamaApi, new ModelRouter(config), credential, expenseService, dateTool,
+                Jackson2ObjectMapperBuilder.json().build(), meterRegistry, true, 5000).run(null);
+
+        ArgumentCaptor<OllamaApi.ChatRequest> loads = ArgumentCaptor.forClass(OllamaApi.ChatRequest.class);
+        verify(ollamaApi, times(2)).chat(loads.capture());
+        // Loads run in parallel, in no particular order
+        Map<String, String> keepAlives = loads.getAllValues().stream()
+                .collect(Collectors.toMap(OllamaApi.ChatRequest::model, OllamaApi.ChatRequest::keepAlive));
+        assertEquals(Map.of("qwen3:latest", "30m", "qwen3:1.7b", "30m"), keepAlives);
+        verify(credential).refreshToken();
+        verify(expenseService).getYear(2025);
+        assertEquals(2, meterRegistry.get("expense.warmup.duration").tag("step", "ollama").tag("result", "failure").timer().count());
+        assertEquals(1, meterRegistry.get("expense.warmup.duration").tag("step", "json").tag("result", "success").timer().count());
+    }
+}
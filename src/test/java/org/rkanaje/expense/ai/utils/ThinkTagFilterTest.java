@@ -0,0 +1,46 @@
+package org.rkanaje.expense.ai.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ThinkTagFilterTest {
+
+    @Test
+    void removesThinkSegmentsSplitAcrossChunks() {
+        String response = "<think>\nThe user wants lunch.\n</think>\n\nAdded lunch for 12.50 <b>today</b>.";
+
+        // Every split point of the response must give the same visible text
+        for (int split = 0; split <= response.length(); split++) {
+            ThinkTagFilter filter = new ThinkTagFilter();
+            String visible = filter.accept(response.substring(0, split))
+                    + filter.accept(response.substring(split))
+                    + filter.finish();
+            assertEquals("Added lunch for 12.50 <b>today</b>.", visible, "split at " + split);
+        }
+    }
+
+    @Test
+    void emitsVisibleTextAsSoonAsItIsDecided() {
+        ThinkTagFilter filter = new ThinkTagFilter();
+
+        List<String> emitted = List.of("<thi", "nk>hmm</th", "ink>Hello <", "there", " </", "think");
+        StringBuilder visible = new StringBuilder();
+        for (String chunk : emitted) {
+            visible.append(filter.accept(chunk)).append('|');
+        }
+        visible.append(filter.finish());
+
+        assertEquals("||Hello |<there| </|think|", visible.toString());
+    }
+
+    @Test
+    void dropsUnterminatedThinkSegment() {
+        ThinkTagFilter filter = new ThinkTagFilter();
+
+        assertEquals("Hi ", filter.accept("Hi <think>still thinking"));
+        assertEquals("", filter.finish());
+    }
+}
@@ -0,0 +1,62 @@
+package org.rkanaje.expense.ai.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ThinkTagInputStreamTest {
+
+    @Test
+    void removesLiteralAndEscapedThinkSegments() throws IOException {
+        String body = "{\"message\":{\"content\":\"\\u003cthink\\u003e\\nCheck \\\"a\\u003cb\\\" \\\\u003c/think\\u003e"
+                + "\\n\\u003C/think\\u003E\\n\\nAdded \\u003cb\\u003e. \"},"
+                + "\"other\":\"<think>x</think>kept <thin\"}";
+
+        assertEquals("{\"message\":{\"content\":\"\\n\\nAdded \\u003cb\\u003e. \"},\"other\":\"kept <thin\"}",
+                filter(body, 1));
+        assertEquals(filter(body, 1), filter(body, 8192));
+    }
+
+    @Test
+    void passesThroughBodiesWithoutThinkSegments() throws IOException {
+        String body = "{\"content\":\"a < b and c \\u003e d\\\\\"}".repeat(1000);
+
+        assertEquals(body, filter(body, 7));
+    }
+
+    @Test
+    void dropsUnterminatedThinkSegment() throws IOException {
+        assertEquals("{\"content\":\"", filter("{\"content\":\"<think>never closed\"}", 3));
+    }
+
+    private static String filter(String body, int chunkSize) throws IOException {
+        InputStream source = new ChunkedInputStream(body.getBytes(StandardCharsets.UTF_8), chunkSize);
+        try (InputStream filtered = new ThinkTagInputStream(source)) {
+            return new String(filtered.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns at most chunkSize bytes per read, so tags and escapes are split across reads.
+     */
+    private static class ChunkedInputStream extends FilterInputStream {
+
+        private final int chunkSize;
+
+        ChunkedInputStream(byte[] bytes, int chunkSize) {
+            super(new ByteArrayInputStream(bytes));
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, chunkSize));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.rkanaje.expense.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rkanaje.expense.ai.model.Expense;
+import org.rkanaje.expense.ai.repository.ExpenseRepository;
+import org.rkanaje.expense.ai.repository.UpsertResult;
+import org.rkanaje.expense.ai.service.ExpenseImportService;
+import org.rkanaje.expense.ai.service.ExpenseServiceImpl;
+import org.rkanaje.expense.ai.service.ExpenseYearCache;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ExpenseControllerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ExpenseRepository repository = new ExpenseRepository() {
+            @Override
+            public List<Expense> findByYear(int year) {
+                return List.of(
+                        new Expense(1.0, "a", year + "-01-05"),
+                        new Expense(2.0, "b", year + "-01-05"),
+                        new Expense(3.0, "c", year + "-01-05"),
+                        new Expense(4.0, "d", year + "-03-01"));
+            }
+
+            @Override
+            public UpsertResult upsert(int year, List<Expense> expenses) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int delete(int year, List<Expense> expenses) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int deleteExact(int year, List<Expense> expenses) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        ExpenseServiceImpl service = new ExpenseServiceImpl(repository,
+                new ExpenseYearCache(1000, 60000, new SimpleMeterRegistry()), event -> { });
+        mockMvc = MockMvcBuilders.standaloneSetup(new ExpenseController(service, new ExpenseImportService(service, 1000), objectMapper)).build();
+    }
+
+    @Test
+    void pagesFollowTheCursorAcrossYears() throws Exception {
+        StringBuilder topics = new StringBuilder();
+        String after = null;
+        int pages = 0;
+        do {
+            var request = get("/v1/expenses").param("from", "2024-02-01").param("to", "2025-12-31").param("limit", "2");
+            if (after != null) {
+                request.param("after", after);
+            }
+            JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            page.get("expenses").forEach(expense -> topics.append(expense.get("topic").asText()));
+            after = page.get("next").isNull() ? null : page.get("next").asText();
+            pages++;
+        } while (after != null);
+
+        assertEquals("dabcd", topics.toString());
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void streamsNewlineDelimitedJson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/expenses").param("year", "2025")
+                        .header("Accept", ExpenseController.APPLICATION_NDJSON_VALUE))
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(body.endsWith("\n"));
+        assertEquals("2025-03-01", objectMapper.readTree(lines[3]).get("date").asText());
+    }
+
+    @Test
+    void rejectsMalformedCursor() throws Exception {
+        mockMvc.perform(get("/v1/expenses").param("limit", "2").param("after", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportsGzippedCsvAcrossYears() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/expenses/export")
+                        .param("from", "2024-03-01").param("to", "2025-01-31").param("gzip", "true"))
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals("""
+                date,amount,topic\r
+                2024-03-01,4.00,d\r
+                2025-01-05,1.00,a\r
+                2025-01-05,2.00,b\r
+                2025-01-05,3.00,c\r
+                """, csv);
+    }
+}